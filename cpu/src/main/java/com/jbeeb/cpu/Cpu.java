@@ -91,6 +91,8 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
 
     private boolean haltIfPCLoop = false;
 
+    private final DeferredOutput deferredOutput = new DeferredOutput();
+
     public Cpu(final SystemStatus systemStatus, final Scheduler scheduler, final Memory memory) {
         this.systemStatus = Objects.requireNonNull(systemStatus);
         this.scheduler = Objects.requireNonNull(scheduler);
@@ -129,6 +131,7 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
         this.flags = Flag.INTERRUPT.set(0);
         this.halted = false;
         this.haltCode = 0;
+        deferredOutput.reset();
     }
 
     public void setInterruptSource(final InterruptSource interruptSource) {
@@ -357,6 +360,7 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
     }
 
     public void JSR(final int address) {
+        final boolean suspended = deferredOutput.suspend(this);
         final int pcNow = pc;
         final int pcDec = pcNow - 1;
         pushByte((pcDec >>> 8) & 0xFF);
@@ -365,6 +369,7 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
         while (pc != pcNow) {
             tick(ClockSpeed.CR200, 0L);
         }
+        deferredOutput.resume(suspended);
     }
 
     private final Map<Integer, Runnable> returnTo = new HashMap<>();
@@ -924,6 +929,18 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
         this.sp = value & 0xFF;
     }
 
+    public int getFlags() {
+        return flags;
+    }
+
+    public void setFlags(final int flags) {
+        this.flags = flags & 0xFF;
+    }
+
+    public DeferredOutput getDeferredOutput() {
+        return deferredOutput;
+    }
+
     public int getA() {
         return a;
     }
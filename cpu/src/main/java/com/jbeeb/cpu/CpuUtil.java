@@ -11,12 +11,24 @@ public final class CpuUtil {
     }
 
     public static void oswrch(final Cpu cpu, final int ch) {
-        cpu.setA(ch, true);
-        cpu.JSR(0xFFEE);
+        final DeferredOutput output = cpu.getDeferredOutput();
+        if (output.isDeferring()) {
+            output.write(ch);
+        } else {
+            cpu.setA(ch, true);
+            cpu.JSR(0xFFEE);
+        }
     }
 
     public static void osnewl(final Cpu cpu) {
-        cpu.JSR(0xFFE7);
+        final DeferredOutput output = cpu.getDeferredOutput();
+        if (output.isDeferring()) {
+            // As OSNEWL does
+            output.write(10);
+            output.write(13);
+        } else {
+            cpu.JSR(0xFFE7);
+        }
     }
 
     public static void osbyte(final Cpu cpu, final int a, final int x, final int y) {
@@ -0,0 +1,134 @@
+package com.jbeeb.cpu;
+
+//
+// Text written by host code running inside a fetch intercept. Rather than running OSWRCH for each character
+// from within the intercept - a nested emulation loop in which devices are not ticked - the characters are
+// queued and the intercept hands the CPU to a small drain routine, which the normal emulation loop runs to
+// write them through OSWRCH before returning to the original caller with its registers as the intercept left
+// them.
+//
+public final class DeferredOutput {
+
+    private static final int OSWRCH = 0xFFEE;
+
+    private final StringBuilder pending = new StringBuilder();
+    private int next;
+
+    private boolean deferring;
+    private boolean suspended;
+    private boolean draining;
+
+    private int savedA;
+    private int savedX;
+    private int savedY;
+    private int savedFlags;
+    private int resumePC;
+
+    public boolean isDeferring() {
+        return deferring;
+    }
+
+    //
+    // Only the outermost intercept defers, and not while a previous batch is still being drained - anything
+    // written then goes straight through OSWRCH as it always did
+    //
+    public boolean begin() {
+        if (deferring || suspended || draining) {
+            return false;
+        }
+        deferring = true;
+        return true;
+    }
+
+    public void end() {
+        deferring = false;
+    }
+
+    //
+    // A nested JSR made while deferring runs code that may write too, so anything queued so far is written
+    // first, with the caller's registers kept, and output goes straight through OSWRCH until the call returns
+    //
+    boolean suspend(final Cpu cpu) {
+        if (!deferring) {
+            return false;
+        }
+        deferring = false;
+        suspended = true;
+        if (hasPending()) {
+            final int a = cpu.getA();
+            final int x = cpu.getX();
+            final int y = cpu.getY();
+            final int flags = cpu.getFlags();
+            for (int ch = poll(); ch >= 0; ch = poll()) {
+                cpu.setA(ch, true);
+                cpu.JSR(OSWRCH);
+            }
+            cpu.setA(a, false);
+            cpu.setX(x, false);
+            cpu.setY(y, false);
+            cpu.setFlags(flags);
+        }
+        return true;
+    }
+
+    void resume(final boolean wasSuspended) {
+        if (wasSuspended) {
+            suspended = false;
+            deferring = true;
+        }
+    }
+
+    // After a reset nothing is left to return to
+    void reset() {
+        pending.setLength(0);
+        next = 0;
+        deferring = false;
+        suspended = false;
+        draining = false;
+    }
+
+    public void write(final int ch) {
+        pending.append((char) (ch & 0xFF));
+    }
+
+    public boolean hasPending() {
+        return next < pending.length();
+    }
+
+    // The next character to write, or -1 when there are none left
+    public int poll() {
+        if (next < pending.length()) {
+            return pending.charAt(next++);
+        }
+        pending.setLength(0);
+        next = 0;
+        return -1;
+    }
+
+    //
+    // The drain routine returns to the caller, or if the intercept moved the CPU on somewhere else, carries on
+    // from there instead
+    //
+    public void startDraining(final Cpu cpu, final int resumePC) {
+        this.resumePC = resumePC;
+        savedA = cpu.getA();
+        savedX = cpu.getX();
+        savedY = cpu.getY();
+        savedFlags = cpu.getFlags();
+        draining = true;
+    }
+
+    // True if the CPU has been moved on to where the intercept left it rather than returning
+    public boolean finishDraining(final Cpu cpu) {
+        cpu.setA(savedA, false);
+        cpu.setX(savedX, false);
+        cpu.setY(savedY, false);
+        cpu.setFlags(savedFlags);
+        draining = false;
+        if (resumePC >= 0) {
+            cpu.setPC(resumePC);
+            return true;
+        }
+        return false;
+    }
+}
@@ -21,6 +21,7 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
 
     private final SystemVIA systemVIA;
     private final List<Runnable> newFrameListeners = new ArrayList<>();
+    private final VideoRegisterLog registerLog = new VideoRegisterLog(() -> this.myCycleCount);
 
     @StateKey(key = "v0")
     private int v0;
@@ -28,11 +29,12 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
     @StateKey(key = "registers")
     private final int[] registers = new int[18];
 
-    private boolean cursorOn;
     private long inputCycleCount = 0L;
     private long myCycleCount = 0L;
     private long lastEndOfFrame = 0L;
-    private long lastCursorBlink = 0L;
+
+    // Counts frames in emulated time - blink and flash phases are all derived from this
+    private long frameNumber = 0L;
 
     private long firstFrameTime = -1L;
     private int frameCount;
@@ -40,6 +42,14 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
     private boolean firedSyncOn = false;
     private boolean firedSyncOff = false;
 
+    //
+    // Frame timing model - rebuilt when the timing or cursor registers are written so that tick()
+    // only has to count down to the next edge
+    //
+    private int syncPulseOnCycles;
+    private int syncPulseOffCycles;
+    private long cyclesUntilNextEdge = 0L;
+
     public Crtc6845(
             final SystemStatus systemStatus,
             final String name,
@@ -48,30 +58,58 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
     ) {
         super(systemStatus, name, startAddress, 8);
         this.systemVIA = Objects.requireNonNull(systemVIA);
+        rebuildTimingModel();
+    }
+
+    public VideoRegisterLog getRegisterLog() {
+        return registerLog;
+    }
+
+    public void copyRegisters(final int[] target) {
+        System.arraycopy(registers, 0, target, 0, registers.length);
     }
 
     public boolean isCursorEnabled() {
-        return getCursorStartLine() > 0  && (getCursorStartLine() < getCursorEndLine());
+        return isCursorEnabled(registers);
+    }
+
+    public static boolean isCursorEnabled(final int[] registers) {
+        return getCursorStartLine(registers) > 0  && (getCursorStartLine(registers) < getCursorEndLine(registers));
     }
 
     public boolean isCursorOn() {
-        return !isCursorBlinkEnabled() || cursorOn;
+        if (!isCursorBlinkEnabled()) {
+            return true;
+        }
+        final int blinkFrames = isCursorFastBlink() ? FAST_CURSOR_VSYNCS : SLOW_CURSOR_VSYNCS;
+        return ((frameNumber / blinkFrames) & 1L) == 0L;
+    }
+
+    public long getFrameNumber() {
+        return frameNumber;
     }
 
     @Override
     public void tick(final ClockSpeed clockSpeed, final long elapsedNanos) {
-        final int cyclesPerRow = VERTICAL_SYNC_2MHZ_CYCLES / getVerticalTotalChars();
-        final int cyclesPerScanline = VERTICAL_SYNC_2MHZ_CYCLES / (getVerticalTotalChars() * 8);
-        final int syncPulseOnCycles = getVerticalSyncPosition() * cyclesPerRow;
-        final int syncPulseOffCycles = syncPulseOnCycles + getVerticalSyncPulseWidth() * cyclesPerScanline;
-        final long cyclesSinceLastNewFrame = myCycleCount - lastEndOfFrame;
+        if (cyclesUntilNextEdge <= 0L) {
+            processEdges();
+        }
+        final int cycles = clockSpeed.computeElapsedCycles(CLOCK_RATE, inputCycleCount, myCycleCount, elapsedNanos);
+        myCycleCount += cycles;
+        cyclesUntilNextEdge -= cycles;
+        inputCycleCount++;
+    }
 
+    private void processEdges() {
         if (!firedNewFrame) {
             // New frame (start rendering)
+            rebuildTimingModel();
             newFrame();
             firedNewFrame = true;
         }
 
+        final long cyclesSinceLastNewFrame = myCycleCount - lastEndOfFrame;
+
         if (!firedSyncOn && cyclesSinceLastNewFrame >= syncPulseOnCycles) {
             // Fire vsync interrupt
             systemVIA.setCA1(true);
@@ -84,22 +122,38 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
             firedSyncOff = true;
         }
 
-        final long cursorToggleCycles = VERTICAL_SYNC_2MHZ_CYCLES * ((isCursorFastBlink()) ? FAST_CURSOR_VSYNCS : SLOW_CURSOR_VSYNCS);
-        final long cyclesSinceLastCursorBlink = myCycleCount - lastCursorBlink;
-        if (cyclesSinceLastCursorBlink >= cursorToggleCycles) {
-            cursorOn = !cursorOn;
-            lastCursorBlink = myCycleCount;
-        }
-
-        if ((cyclesSinceLastNewFrame >= VERTICAL_SYNC_2MHZ_CYCLES)) {
+        if (cyclesSinceLastNewFrame >= VERTICAL_SYNC_2MHZ_CYCLES) {
             lastEndOfFrame = myCycleCount;
             firedNewFrame = false;
             firedSyncOn = false;
             firedSyncOff = false;
         }
 
-        myCycleCount += clockSpeed.computeElapsedCycles(CLOCK_RATE, inputCycleCount, myCycleCount, elapsedNanos);
-        inputCycleCount++;
+        cyclesUntilNextEdge = computeCyclesUntilNextEdge();
+    }
+
+    private long computeCyclesUntilNextEdge() {
+        if (!firedNewFrame) {
+            return 0L;
+        }
+        long next = lastEndOfFrame + VERTICAL_SYNC_2MHZ_CYCLES;
+        if (!firedSyncOn) {
+            next = Math.min(next, lastEndOfFrame + syncPulseOnCycles);
+        }
+        if (!firedSyncOff) {
+            next = Math.min(next, lastEndOfFrame + syncPulseOffCycles);
+        }
+        return next - myCycleCount;
+    }
+
+    private void rebuildTimingModel() {
+        final int cyclesPerRow = VERTICAL_SYNC_2MHZ_CYCLES / getVerticalTotalChars();
+        final int cyclesPerScanline = VERTICAL_SYNC_2MHZ_CYCLES / (getVerticalTotalChars() * 8);
+        syncPulseOnCycles = getVerticalSyncPosition() * cyclesPerRow;
+        syncPulseOffCycles = syncPulseOnCycles + getVerticalSyncPulseWidth() * cyclesPerScanline;
+
+        // Re-evaluate the edges on the next tick
+        cyclesUntilNextEdge = 0L;
     }
 
     public void addNewFrameListener(final Runnable l) {
@@ -110,6 +164,7 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
         if (firstFrameTime < 0L) {
             firstFrameTime = System.nanoTime();
         }
+        frameNumber++;
         frameCount++;
         if (frameCount == 40) { // Update status every couple of seconds
             final double secs = (System.nanoTime() - firstFrameTime) / 1_000_000_000.0;
@@ -118,6 +173,7 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
             frameCount = 0;
         }
         newFrameListeners.forEach(Runnable::run);
+        registerLog.startFrame();
     }
 
     @Override
@@ -134,15 +190,27 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
         return (index >= 16 && index <= 17);
     }
 
+    private boolean isTimingRegister(final int index) {
+        return (index >= 0 && index <= 11);
+    }
+
     private boolean isWriteOnly(final int index) {
         return (index >= 0 && index <= 13);
     }
 
     public int getHorizontalTotalChars() {
+        return getHorizontalTotalChars(registers);
+    }
+
+    public static int getHorizontalTotalChars(final int[] registers) {
         return registers[0] + 1;
     }
 
     public int getHorizontalDisplayedChars() {
+        return getHorizontalDisplayedChars(registers);
+    }
+
+    public static int getHorizontalDisplayedChars(final int[] registers) {
         return registers[1];
     }
 
@@ -163,6 +231,10 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
     }
 
     public int getVerticalDisplayedChars() {
+        return getVerticalDisplayedChars(registers);
+    }
+
+    public static int getVerticalDisplayedChars(final int[] registers) {
         return registers[6] & 0x7F;
     }
 
@@ -171,18 +243,36 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
     }
 
     public int getScanlinesPerCharacter() {
+        return getScanlinesPerCharacter(registers);
+    }
+
+    public static int getScanlinesPerCharacter(final int[] registers) {
         return registers[9] + 1;
     }
 
     public int getScreenStartAddress() {
+        return getScreenStartAddress(registers);
+    }
+
+    public static int getScreenStartAddress(final int[] registers) {
         return ((registers[12] & 0xFF) << 8) | (registers[13] & 0xFF);
     }
 
+    // Where a CRTC address points in memory in teletext mode
+    public static int toTeletextAddress(final int address) {
+        final int addrH = ((((address >>> 8) & 0xFF) ^ 0x20) + 0x74);
+        return (address & 0xFF) | ((addrH & 0xFF) << 8);
+    }
+
     //
     // Cursor stuff
     //
     public int getCursorAddress() {
-        return computeCursorAddress();
+        return getCursorAddress(registers);
+    }
+
+    public static int getCursorAddress(final int[] registers) {
+        return ((registers[14] & 0xFF) << 8) | (registers[15] & 0xFF);
     }
 
     public int getCursorBlankingDelay() {
@@ -198,15 +288,19 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
     }
 
     public int getCursorStartLine() {
+        return getCursorStartLine(registers);
+    }
+
+    public static int getCursorStartLine(final int[] registers) {
         return registers[10] & 0x1F;
     }
 
     public int getCursorEndLine() {
-        return registers[11] & 0x1F;
+        return getCursorEndLine(registers);
     }
 
-    private int computeCursorAddress() {
-        return ((registers[14] & 0xFF) << 8) | (registers[15] & 0xFF);
+    public static int getCursorEndLine(final int[] registers) {
+        return registers[11] & 0x1F;
     }
 
     private int readInternalRegister(final int index) {
@@ -235,6 +329,10 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
         } else {
             if (!isReadOnly(v0)) {
                 registers[v0] = value & 0xFF;
+                registerLog.record(VideoRegisterLog.SOURCE_CRTC, v0, value & 0xFF);
+                if (isTimingRegister(v0)) {
+                    rebuildTimingModel();
+                }
             }
         }
     }
@@ -37,9 +37,9 @@ public class SystemVIA extends VIA {
     private Runnable capsLockChangedCallback;
     private Runnable shiftLockChangedCallback;
 
-    public static SoundChip createSoundChip() {
+    public static SoundChip createSoundChip(final SystemStatus systemStatus) {
         try {
-            return new MultiSoundChip();
+            return new MultiSoundChip(systemStatus);
         } catch (Exception ex) {
             ex.printStackTrace();
             return new NopSoundChip();
@@ -187,7 +187,7 @@ public class SystemVIA extends VIA {
     public void portAUpdated() {
         updateKeys();
         if ((IC32 & 1) == 0) {
-            soundChip.accept(portAPins);
+            soundChip.accept(getCycleCount(), portAPins);
         }
 
     }
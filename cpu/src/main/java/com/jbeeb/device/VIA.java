@@ -128,6 +128,10 @@ public class VIA extends AbstractMemoryMappedDevice implements ClockListener, In
         reset();
     }
 
+    public long getCycleCount() {
+        return myCycleCount;
+    }
+
     private void reset() {
         ora = 0;
         orb = 0;
@@ -0,0 +1,87 @@
+package com.jbeeb.device;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+//
+// Records writes to the video ULA and CRTC registers, stamped with the 2Mhz cycle at which they happened,
+// so that a frame can be rendered in one go and still apply mid-frame changes at the right raster position
+//
+public final class VideoRegisterLog {
+
+    public static final int SOURCE_VIDEO_ULA = 0;
+    public static final int SOURCE_CRTC = 1;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final LongSupplier cycleSource;
+
+    private long[] cycles = new long[INITIAL_CAPACITY];
+    private int[] writes = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private long frameStartCycle;
+    private int frameNumber;
+
+    // For copies that are only ever filled by copyFrom()
+    public VideoRegisterLog() {
+        this(() -> 0L);
+    }
+
+    public VideoRegisterLog(final LongSupplier cycleSource) {
+        this.cycleSource = Objects.requireNonNull(cycleSource);
+    }
+
+    public void record(final int source, final int register, final int value) {
+        if (size == cycles.length) {
+            cycles = Arrays.copyOf(cycles, size * 2);
+            writes = Arrays.copyOf(writes, size * 2);
+        }
+        cycles[size] = cycleSource.getAsLong();
+        writes[size] = (source << 16) | ((register & 0xFF) << 8) | (value & 0xFF);
+        size++;
+    }
+
+    public void startFrame() {
+        frameStartCycle = cycleSource.getAsLong();
+        frameNumber++;
+        size = 0;
+    }
+
+    public void copyFrom(final VideoRegisterLog other) {
+        if (cycles.length < other.size) {
+            cycles = new long[other.cycles.length];
+            writes = new int[other.writes.length];
+        }
+        System.arraycopy(other.cycles, 0, cycles, 0, other.size);
+        System.arraycopy(other.writes, 0, writes, 0, other.size);
+        size = other.size;
+        frameStartCycle = other.frameStartCycle;
+        frameNumber = other.frameNumber;
+    }
+
+    public int getFrameNumber() {
+        return frameNumber;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getFrameCycle(final int index) {
+        return cycles[index] - frameStartCycle;
+    }
+
+    public int getSource(final int index) {
+        return writes[index] >>> 16;
+    }
+
+    public int getRegister(final int index) {
+        return (writes[index] >>> 8) & 0xFF;
+    }
+
+    public int getValue(final int index) {
+        return writes[index] & 0xFF;
+    }
+}
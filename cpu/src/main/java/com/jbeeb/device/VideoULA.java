@@ -53,6 +53,7 @@ public class VideoULA extends AbstractMemoryMappedDevice implements InterruptSou
     };
 
     private SystemPalette systemPalette = SystemPalette.DEFAULT;
+    private VideoRegisterLog registerLog;
 
     @StateKey(key = "videoControlRegister")
     private int videoControlRegister;
@@ -66,8 +67,28 @@ public class VideoULA extends AbstractMemoryMappedDevice implements InterruptSou
         super(systemStatus, name, startAddress, 8);
     }
 
+    public void setRegisterLog(final VideoRegisterLog registerLog) {
+        this.registerLog = registerLog;
+    }
+
+    public SystemPalette getSystemPalette() {
+        return systemPalette;
+    }
+
+    public int getVideoControlRegister() {
+        return videoControlRegister;
+    }
+
+    public void copyPalette(final int[] target) {
+        System.arraycopy(palette, 0, target, 0, palette.length);
+    }
+
     public boolean isCursorEnabled() {
-        return getMasterCursorSize() > 0 || getCursorWidth() > 1;
+        return isCursorEnabled(videoControlRegister);
+    }
+
+    public static boolean isCursorEnabled(final int videoControlRegister) {
+        return getMasterCursorSize(videoControlRegister) > 0 || getCursorWidth(videoControlRegister) > 1;
     }
 
     @Override
@@ -86,10 +107,18 @@ public class VideoULA extends AbstractMemoryMappedDevice implements InterruptSou
         return 0;
     }
     public int getMasterCursorSize() {
+        return getMasterCursorSize(videoControlRegister);
+    }
+
+    public static int getMasterCursorSize(final int videoControlRegister) {
         return (videoControlRegister >>> 7) & 0x01;
     }
 
     public int getCursorWidth() {
+        return getCursorWidth(videoControlRegister);
+    }
+
+    public static int getCursorWidth(final int videoControlRegister) {
         final int cw = (videoControlRegister >>> 5) & 0x03;
         switch (cw) {
             default:
@@ -103,29 +132,46 @@ public class VideoULA extends AbstractMemoryMappedDevice implements InterruptSou
     }
 
     public int getBitsPerPixel() {
-        final int charsPerLine = getCharactersPerLine();
+        return getBitsPerPixel(videoControlRegister);
+    }
+
+    public static int getBitsPerPixel(final int videoControlRegister) {
+        final int charsPerLine = getCharactersPerLine(videoControlRegister);
+        final boolean fastClockRate = isFastClockRate(videoControlRegister);
         switch (charsPerLine) {
             default:
             case 80:
                 return 1;
             case 40:
-                return isFastClockRate() ? 2 : 1;
+                return fastClockRate ? 2 : 1;
             case 20:
-                return isFastClockRate() ? 4 : 2;
+                return fastClockRate ? 4 : 2;
             case 10:
-                return isFastClockRate() ? 4 : 2;
+                return fastClockRate ? 4 : 2;
         }
     }
 
     public int getPixelsPerCharacter() {
-        return 8 / getBitsPerPixel();
+        return getPixelsPerCharacter(videoControlRegister);
+    }
+
+    public static int getPixelsPerCharacter(final int videoControlRegister) {
+        return 8 / getBitsPerPixel(videoControlRegister);
     }
 
     public boolean isFastClockRate() {
+        return isFastClockRate(videoControlRegister);
+    }
+
+    public static boolean isFastClockRate(final int videoControlRegister) {
         return (videoControlRegister & 0x10) != 0;
     }
 
     public int getCharactersPerLine() {
+        return getCharactersPerLine(videoControlRegister);
+    }
+
+    public static int getCharactersPerLine(final int videoControlRegister) {
         final int cpl = (videoControlRegister >>> 2) & 0x03;
         switch (cpl) {
             case 3:
@@ -141,27 +187,53 @@ public class VideoULA extends AbstractMemoryMappedDevice implements InterruptSou
     }
 
     public int getSelectedFlashIndex() {
+        return getSelectedFlashIndex(videoControlRegister);
+    }
+
+    public static int getSelectedFlashIndex(final int videoControlRegister) {
         return videoControlRegister & 0x01;
     }
 
     public boolean isTeletext() {
+        return isTeletext(videoControlRegister);
+    }
+
+    public static boolean isTeletext(final int videoControlRegister) {
         return (videoControlRegister & 0x02) != 0;
     }
 
     @Override
     public void writeRegister(int index, int value) {
         index = index & 1;
+        if (registerLog != null) {
+            registerLog.record(VideoRegisterLog.SOURCE_VIDEO_ULA, index, value & 0xFF);
+        }
         if (index == 0) {
             this.videoControlRegister = (value & 0xFF);
             //System.err.println("vcr = " + videoControlRegister + " bpp = " + getBitsPerPixel() + " cpl = " + getCharactersPerLine() + " fast = " + isFastClockRate());
         } else if (index == 1) {
-            final int logicalIndex = (value >>> 4) & 0x0F;
-            final int actualColour = (value & 0x0F);
-            palette[logicalIndex] = actualColour ^ 0x7;
+            writePalette(palette, value);
         }
     }
 
+    public static void writePalette(final int[] palette, final int value) {
+        final int logicalIndex = (value >>> 4) & 0x0F;
+        final int actualColour = (value & 0x0F);
+        palette[logicalIndex] = actualColour ^ 0x7;
+    }
+
     public Color getPhysicalColor(int v, int b, final int bitsPerPixel) {
+        return getPhysicalColor(systemPalette, palette, videoControlRegister, v, b, bitsPerPixel);
+    }
+
+    public static Color getPhysicalColor(
+            final SystemPalette systemPalette,
+            final int[] palette,
+            final int videoControlRegister,
+            final int v,
+            final int b,
+            final int bitsPerPixel
+    ) {
         final int logicalColorIndex = getLogicalColour(v, b, bitsPerPixel);
         int paletteIndex = logicalColorIndex;
         switch (bitsPerPixel) {
@@ -185,7 +257,7 @@ public class VideoULA extends AbstractMemoryMappedDevice implements InterruptSou
 
                 }
         }
-        return PHYSICAL_COLORS[palette[paletteIndex]].getCurrentColour(systemPalette, getSelectedFlashIndex());
+        return PHYSICAL_COLORS[palette[paletteIndex]].getCurrentColour(systemPalette, getSelectedFlashIndex(videoControlRegister));
     }
 
     public static int getLogicalColour(final int v, final int position, final int bitsPerPixel) {
@@ -9,9 +9,8 @@ import java.util.Objects;
 public class BaseDisk implements Disk {
 
     private final FloppyDiskController fdc;
-    private int[] data;
+    private final DiskData data;
     private final String name;
-    private Runnable flusher;
 
     private boolean isDsd;
     private int byteWithinSector;
@@ -31,24 +30,16 @@ public class BaseDisk implements Disk {
 
     private final Scheduler scheduler;
 
-    public BaseDisk(FloppyDiskController fdc, Scheduler scheduler, String name, int[] data, Runnable flusher) {
+    public BaseDisk(FloppyDiskController fdc, Scheduler scheduler, String name, DiskData data) {
         this.fdc = Objects.requireNonNull(fdc);
         this.scheduler = Objects.requireNonNull(scheduler);
         this.name = name;
-        this.flusher = flusher;
-
-        DiskDetails details = Util.getDiskDetails(name);
-        this.isDsd = details.isDsd();
-        int size = details.getSize();
-        if (data.length > size && !this.isDsd) {
-            details = Util.getDiskDetails(name + ".dsd");
-            this.isDsd = true;
-            size = details.getSize();;
-        }
+        this.data = Objects.requireNonNull(data);
 
-        this.data = Util.resizeArray(data, size);
+        final DiskDetails details = Util.getDiskDetails(name);
+        this.isDsd = details.isDsd() || data.size() > details.getSize();
 
-        this.writeProt = (flusher == null);
+        this.writeProt = !data.isWritable();
         this.byteWithinSector = 0;
         this.seekOffset = 0;
         this.sectorOffset = 0;
@@ -62,11 +53,11 @@ public class BaseDisk implements Disk {
         });
 
         readTask = scheduler.newTask(() -> {
-            this.fdc.discData(this.data[this.seekOffset + this.sectorOffset + this.byteWithinSector]);
+            this.fdc.discData(this.data.read(this.seekOffset + this.sectorOffset + this.byteWithinSector));
             if (++this.byteWithinSector == 256) {
                 this.fdc.discFinishRead();
             } else {
-                rescheduleReadTask(FloppyDiskController.DISC_TIME_SLICE);
+                rescheduleReadTask(fdc.getByteTimeSlice());
             }
         });
 
@@ -75,12 +66,12 @@ public class BaseDisk implements Disk {
                 this.fdc.writeProtect();
                 return;
             }
-            this.data[this.seekOffset + this.sectorOffset + this.byteWithinSector] = this.fdc.readDiscData(this.byteWithinSector == 255);
+            this.data.write(this.seekOffset + this.sectorOffset + this.byteWithinSector, this.fdc.readDiscData(this.byteWithinSector == 255));
             if (++this.byteWithinSector == 256) {
                 this.fdc.discFinishRead();
                 this.flush();
             } else {
-                rescheduleWriteTask(FloppyDiskController.DISC_TIME_SLICE);
+                rescheduleWriteTask(fdc.getByteTimeSlice());
             }
         });
 
@@ -109,7 +100,7 @@ public class BaseDisk implements Disk {
                     return;
             }
             this.byteWithinSector++;
-            rescheduleReadAddrTask(FloppyDiskController.DISC_TIME_SLICE);
+            rescheduleReadAddrTask(fdc.getByteTimeSlice());
         });
 
         formatTask = scheduler.newTask(() -> {
@@ -117,7 +108,7 @@ public class BaseDisk implements Disk {
                 this.fdc.writeProtect();
                 return;
             }
-            this.data[this.seekOffset + this.sectorOffset + this.byteWithinSector] = 0;
+            this.data.write(this.seekOffset + this.sectorOffset + this.byteWithinSector, 0);
             if (++this.byteWithinSector == 256) {
                 this.byteWithinSector = 0;
                 this.sectorOffset += 256;
@@ -127,7 +118,7 @@ public class BaseDisk implements Disk {
                     return;
                 }
             }
-            rescheduleFormatTask(FloppyDiskController.DISC_TIME_SLICE);
+            rescheduleFormatTask(fdc.getByteTimeSlice());
         });
     }
 
@@ -148,13 +139,22 @@ public class BaseDisk implements Disk {
     }
 
     void flush() {
-        if (this.flusher != null) {
-            this.flusher.run();
-        }
+        this.data.flush();
+    }
+
+    @Override
+    public void close() {
+        notFoundTask.cancel();
+        readTask.cancel();
+        writeTask.cancel();
+        readAddrTask.cancel();
+        formatTask.cancel();
+        this.data.close();
     }
+
     private boolean check(final int track, final int side, final boolean density) {
         if (this.track != track || density || ((side != 0) && !this.isDsd)) {
-            this.notFoundTask.reschedule(500 * FloppyDiskController.DISC_TIME_SLICE);
+            this.notFoundTask.reschedule(fdc.getNotFoundTime());
             return false;
         }
         return true;
@@ -164,7 +164,7 @@ public class BaseDisk implements Disk {
     public void read(int sector, int track, int side, boolean density) {
         if (!this.check(track, side, density)) return;
         this.side = side;
-        this.readTask.reschedule(FloppyDiskController.DISC_TIME_SLICE);
+        this.readTask.reschedule(fdc.getByteTimeSlice());
         this.sectorOffset = sector * 256 + ((side != 0)  ? 10 * 256 : 0);
         this.byteWithinSector = 0;
     }
@@ -176,7 +176,7 @@ public class BaseDisk implements Disk {
         // NB in old code this used to override "time" to be -1000, which immediately forced a write.
         // I'm not sure why that was required. So I'm ignoring it here. Any funny disc write bugs might be
         // traceable to this change.
-        this.writeTask.reschedule(FloppyDiskController.DISC_TIME_SLICE);
+        this.writeTask.reschedule(fdc.getByteTimeSlice());
         this.sectorOffset = sector * 256 + ((side != 0) ? 10 * 256 : 0);
         this.byteWithinSector = 0;
     }
@@ -185,7 +185,7 @@ public class BaseDisk implements Disk {
     public void address(int track, int side, boolean density) {
         if (!this.check(track, side, density)) return;
         this.side = side;
-        this.readAddrTask.reschedule(FloppyDiskController.DISC_TIME_SLICE);
+        this.readAddrTask.reschedule(fdc.getByteTimeSlice());
         this.byteWithinSector = 0;
         this.rsector = 0;
     }
@@ -194,7 +194,7 @@ public class BaseDisk implements Disk {
     public void format(int track, int side, boolean density) {
         if (!this.check(track, side, density)) return;
         this.side = side;
-        this.formatTask.reschedule(FloppyDiskController.DISC_TIME_SLICE);
+        this.formatTask.reschedule(fdc.getByteTimeSlice());
         this.formatSector = 0;
         this.sectorOffset = (side != 0) ? 10 * 256 : 0;
         this.byteWithinSector = 0;
@@ -7,4 +7,8 @@ public interface Disk {
     void format(int track, int side, boolean density);
     int seek(int seek);
     boolean writeProt();
+
+    // Called when the disc is taken out of its drive
+    default void close() {
+    }
 }
\ No newline at end of file
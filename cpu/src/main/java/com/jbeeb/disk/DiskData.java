@@ -0,0 +1,17 @@
+package com.jbeeb.disk;
+
+//
+// The bytes of a disc image. Offsets beyond the end of the image file read as zero.
+//
+public interface DiskData {
+    int size();
+    int read(int offset);
+    void write(int offset, int value);
+    boolean isWritable();
+
+    // Starts writing back anything changed since the last flush without waiting for it to finish
+    void flush();
+
+    // Writes back anything still changed, waiting for it to finish, and releases the image file
+    void close();
+}
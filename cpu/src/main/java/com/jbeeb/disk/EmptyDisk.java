@@ -18,22 +18,22 @@ public class EmptyDisk implements Disk {
 
     @Override
     public void write(int sector, int track, int side, boolean density) {
-        this.notFoundTask.reschedule(500 * FloppyDiskController.DISC_TIME_SLICE);
+        this.notFoundTask.reschedule(fdc.getNotFoundTime());
     }
 
     @Override
     public void read(int sector, int track, int side, boolean density) {
-        this.notFoundTask.reschedule(500 * FloppyDiskController.DISC_TIME_SLICE);
+        this.notFoundTask.reschedule(fdc.getNotFoundTime());
     }
 
     @Override
     public void address(int track, int side, boolean density) {
-        this.notFoundTask.reschedule(500 * FloppyDiskController.DISC_TIME_SLICE);
+        this.notFoundTask.reschedule(fdc.getNotFoundTime());
     }
 
     @Override
     public void format(int track, int side, boolean density) {
-        this.notFoundTask.reschedule(500 * FloppyDiskController.DISC_TIME_SLICE);
+        this.notFoundTask.reschedule(fdc.getNotFoundTime());
     }
 
     @Override
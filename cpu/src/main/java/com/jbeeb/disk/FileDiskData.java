@@ -0,0 +1,179 @@
+package com.jbeeb.disk;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//
+// Disc image data read a sector at a time from the image file as it is first wanted, so even a large DSD is
+// ready as soon as it is opened. Sectors are kept once read. Written sectors are marked dirty, and a flush
+// writes back just the dirty sectors, in one batch, on a background thread. Closing writes back whatever is left
+// and closes the file straight away, so the image isn't held open (or locked, on Windows) after it has been
+// taken out of its drive.
+//
+// Reads and writes only ever come from the emulation thread, so only writes, which the background writer has
+// to see, take the lock.
+//
+public final class FileDiskData implements DiskData {
+
+    private static final int SECTOR_SIZE = 256;
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        final Thread t = new Thread(r, "disc-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final File file;
+    private final int size;
+    private final FileChannel channel;
+    private final boolean writable;
+
+    private final byte[][] sectors;
+    private final BitSet dirty = new BitSet();
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+    private volatile boolean closed;
+
+    public FileDiskData(final File file, final int size, final boolean writable) throws IOException {
+        this.file = file;
+        this.size = size;
+        this.writable = writable;
+        this.channel = (writable) ?
+                FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE) :
+                FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.sectors = new byte[(size + SECTOR_SIZE - 1) / SECTOR_SIZE][];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isWritable() {
+        return writable;
+    }
+
+    @Override
+    public int read(final int offset) {
+        final int index = offset / SECTOR_SIZE;
+        if (index < 0 || index >= sectors.length) {
+            return 0;
+        }
+        return getSector(index)[offset % SECTOR_SIZE] & 0xFF;
+    }
+
+    @Override
+    public void write(final int offset, final int value) {
+        final int index = offset / SECTOR_SIZE;
+        if (index < 0 || index >= sectors.length) {
+            return;
+        }
+        final byte[] sector = getSector(index);
+        synchronized (this) {
+            sector[offset % SECTOR_SIZE] = (byte) value;
+            dirty.set(index);
+        }
+    }
+
+    private byte[] getSector(final int index) {
+        byte[] sector = sectors[index];
+        if (sector == null) {
+            sector = readSector(index);
+            synchronized (this) {
+                sectors[index] = sector;
+            }
+        }
+        return sector;
+    }
+
+    // Anything beyond the end of the file, or read after the image has been closed, is zero
+    private byte[] readSector(final int index) {
+        final byte[] sector = new byte[SECTOR_SIZE];
+        if (closed) {
+            return sector;
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(sector);
+        final long position = (long) index * SECTOR_SIZE;
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException ex) {
+            if (!closed) {
+                ex.printStackTrace();
+            }
+        }
+        return sector;
+    }
+
+    @Override
+    public void flush() {
+        if (writable && flushPending.compareAndSet(false, true)) {
+            WRITER.execute(this::writeDirtySectors);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            // Queued behind any flush still pending, so nothing written is lost
+            WRITER.submit(this::writeDirtySectors).get();
+        } catch (InterruptedException | ExecutionException ex) {
+            ex.printStackTrace();
+        }
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private void writeDirtySectors() {
+        flushPending.set(false);
+        if (!writable || !channel.isOpen()) {
+            return;
+        }
+        final List<Integer> indexes = new ArrayList<>();
+        final List<byte[]> copies = new ArrayList<>();
+        synchronized (this) {
+            for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+                indexes.add(i);
+                copies.add(sectors[i].clone());
+            }
+            dirty.clear();
+        }
+        try {
+            for (int i = 0; i < indexes.size(); i++) {
+                final ByteBuffer buffer = ByteBuffer.wrap(copies.get(i));
+                final long position = (long) indexes.get(i) * SECTOR_SIZE;
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, position + buffer.position());
+                }
+            }
+            channel.force(false);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file.getName();
+    }
+}
@@ -14,6 +14,16 @@ public class FloppyDiskController extends AbstractMemoryMappedDevice implements
 
     public static final int DISC_TIME_SLICE = 16 * 16;
 
+    //
+    // In fast mode spin up, seeks and missing sectors complete straight away. Bytes still have to be handed over
+    // one NMI at a time because the DFS NMI handler reads the data register once per NMI. They come at the real
+    // 8271's single density rate of one every 64us (128 cycles at 2MHz), which the DFS is written to keep up with.
+    //
+    private static final int FAST_BYTE_TIME_SLICE = 128;
+    private static final int SPIN_UP_TIME = 1_000_000;
+    private static final int SEEK_TIME = 250_000;
+    private static final int NOT_FOUND_TIME = 500 * DISC_TIME_SLICE;
+
     private static final int UNDEFINED_INT = -1;
     private static final int[] UNDEFINED_ARRAY = new int[]{};
 
@@ -38,6 +48,7 @@ public class FloppyDiskController extends AbstractMemoryMappedDevice implements
 
     private final Scheduler scheduler;
     private Cpu cpu;
+    private boolean fastMode;
     private final ScheduledTask callbackTask;
     private final ScheduledTask[] motorSpinDownTask;
 
@@ -66,6 +77,22 @@ public class FloppyDiskController extends AbstractMemoryMappedDevice implements
         this.cpu = cpu;
     }
 
+    public boolean isFastMode() {
+        return fastMode;
+    }
+
+    public void setFastMode(final boolean fastMode) {
+        this.fastMode = fastMode;
+    }
+
+    int getByteTimeSlice() {
+        return fastMode ? FAST_BYTE_TIME_SLICE : DISC_TIME_SLICE;
+    }
+
+    int getNotFoundTime() {
+        return fastMode ? DISC_TIME_SLICE : NOT_FOUND_TIME;
+    }
+
     private void nmi() {
         cpu.requestNMI((status & 8) != 0);
 //        if ((status & 8) != 0) {
@@ -74,9 +101,20 @@ public class FloppyDiskController extends AbstractMemoryMappedDevice implements
     }
 
     public void load(final int driveIndex, final File file) throws IOException {
+        load(driveIndex, file, false);
+    }
+
+    public void load(final int driveIndex, final File file, final boolean writable) throws IOException {
         final String name = file.getName();
-        final int[] data = Util.readFileAsInts(file);
-        final Disk disk = new BaseDisk(this, scheduler, name, data, null);
+        DiskDetails details = Util.getDiskDetails(name);
+        if (file.length() > details.getSize() && !details.isDsd()) {
+            details = Util.getDiskDetails(name + ".dsd");
+        }
+        // The disc already in the drive is written back and let go of first, in case it is the same image
+        drives[driveIndex].close();
+        drives[driveIndex] = new EmptyDisk(this);
+        final DiskData data = new FileDiskData(file, details.getSize(), writable);
+        final Disk disk = new BaseDisk(this, scheduler, name, data);
         drives[driveIndex] = disk;
     }
 
@@ -159,7 +197,7 @@ public class FloppyDiskController extends AbstractMemoryMappedDevice implements
     }
 
     void discFinishRead() {
-        callbackTask.reschedule(DISC_TIME_SLICE);
+        callbackTask.reschedule(getByteTimeSlice());
     }
 
     private static final Map<Integer, Integer> PARAMS_MAP = new HashMap<>();
@@ -268,7 +306,7 @@ public class FloppyDiskController extends AbstractMemoryMappedDevice implements
 
         if (!this.motorOn[this.curDrive]) {
             // Half a second.
-            time = 1_000_000;
+            time = (fastMode) ? DISC_TIME_SLICE : SPIN_UP_TIME;
             this.motorOn[this.curDrive] = true;
             //this.noise.spinUp();
         }
@@ -296,7 +334,7 @@ public class FloppyDiskController extends AbstractMemoryMappedDevice implements
         final int diff = this.drives[this.curDrive].seek(realTrack);
         // Let disc noises overlap by ~10%
         //final int seekLen = (this.noise.seek(diff) * 0.9 * this.cpu.peripheralCyclesPerSecond) | 0;
-        this.callbackTask.reschedule(250_000);//2_000_000);//DiscTimeSlice);//Math.max(DiscTimeSlice, 10_000));
+        this.callbackTask.reschedule((fastMode) ? DISC_TIME_SLICE : SEEK_TIME);//2_000_000);//DiscTimeSlice);//Math.max(DiscTimeSlice, 10_000));
         this.phase = 1;
     }
 
@@ -6,13 +6,17 @@ import java.util.Objects;
 
 public final class ByteRandomAccessData implements RandomAccessData {
 
-    private final byte[] data;
     private final ByteBuffer buffer;
+    private final int length;
 
     public ByteRandomAccessData(final byte[] data) {
-        this.data = Objects.requireNonNull(data);
-        this.buffer = ByteBuffer.wrap(data);
-        this.buffer.position(0);
+        this(data, 0, data.length);
+    }
+
+    // A view of part of the array, such as one file within a disc image
+    public ByteRandomAccessData(final byte[] data, final int offset, final int length) {
+        this.buffer = ByteBuffer.wrap(Objects.requireNonNull(data), offset, length).slice();
+        this.length = length;
     }
 
     @Override
@@ -20,19 +24,31 @@ public final class ByteRandomAccessData implements RandomAccessData {
         return buffer.get();
     }
 
+    @Override
+    public int read(final byte[] data, final int offset, final int length) {
+        final int count = Math.min(length, buffer.remaining());
+        buffer.get(data, offset, count);
+        return count;
+    }
+
     @Override
     public void seek(int position) {
         buffer.position(position);
     }
 
+    @Override
+    public int position() {
+        return buffer.position();
+    }
+
     @Override
     public int length() {
-        return data.length;
+        return length;
     }
 
     @Override
     public boolean isEOF() {
-        return buffer.position() >= data.length;
+        return buffer.position() >= length;
     }
 
     @Override
@@ -0,0 +1,205 @@
+package com.jbeeb.localfs;
+
+import com.jbeeb.util.LruCache;
+import com.jbeeb.util.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+//
+// The contents of a host directory, scanned once and then kept until a watch service reports that the directory
+// has changed, so listing it or looking a name up doesn't touch the file system. Indexes are shared by path so
+// every LocalDirectory for the same directory sees the same one. Where the directory can't be watched it is
+// scanned on every use, as it was before.
+//
+// Only the most recently used directories are kept, so that the number of watches stays well within what the
+// operating system allows. A directory's watch is cancelled when its index is dropped.
+//
+final class DirectoryIndex {
+
+    private static final int MAX_INDEXES = 64;
+    private static final LruCache<Path, DirectoryIndex> INDEXES = new LruCache<>(MAX_INDEXES, DirectoryIndex::close);
+    private static final Map<WatchKey, DirectoryIndex> WATCH_KEYS = new ConcurrentHashMap<>();
+    private static final WatchService WATCHER = createWatcher();
+
+    private final Path path;
+    private final WatchKey watchKey;
+
+    private boolean watched;
+    private Contents contents;
+    private long version;
+
+    private DirectoryIndex(final Path path) {
+        this.path = path;
+        this.watchKey = register(this);
+        this.watched = (watchKey != null);
+    }
+
+    static DirectoryIndex of(final File directory) {
+        final Path key = toKey(directory);
+        synchronized (INDEXES) {
+            DirectoryIndex index = INDEXES.get(key);
+            if (index == null) {
+                index = new DirectoryIndex(key);
+                INDEXES.put(key, index);
+            }
+            return index;
+        }
+    }
+
+    // For changes made by the emulator itself, which must be visible straight away
+    static void invalidate(final File directory) {
+        final DirectoryIndex index;
+        synchronized (INDEXES) {
+            index = INDEXES.get(toKey(directory));
+        }
+        if (index != null) {
+            index.invalidate();
+        }
+    }
+
+    List<LfsElement> list() {
+        return getContents().elements;
+    }
+
+    Optional<LfsElement> find(final String name) {
+        return Optional.ofNullable(getContents().byName.get(toNameKey(name)));
+    }
+
+    synchronized void invalidate() {
+        version++;
+        contents = null;
+    }
+
+    // Anyone still holding the index goes back to scanning on every use
+    private void close() {
+        synchronized (this) {
+            watched = false;
+            invalidate();
+        }
+        if (watchKey != null) {
+            WATCH_KEYS.remove(watchKey);
+            watchKey.cancel();
+        }
+    }
+
+    private Contents getContents() {
+        final long scanVersion;
+        synchronized (this) {
+            if (contents != null) {
+                return contents;
+            }
+            scanVersion = version;
+        }
+        final Contents scanned = scan();
+        synchronized (this) {
+            // Kept only if nothing changed while scanning
+            if (watched && version == scanVersion) {
+                contents = scanned;
+            }
+        }
+        return scanned;
+    }
+
+    private Contents scan() {
+        final File[] files = path.toFile().listFiles();
+        final List<LfsElement> elements = (files == null) ?
+                Collections.emptyList() :
+                Arrays.stream(files)
+                        .filter(f -> !f.getName().toLowerCase().endsWith(LocalFile.INF_SUFFIX))
+                        .map(LocalFileElement::of)
+                        .collect(Collectors.toList());
+        return new Contents(elements);
+    }
+
+    private static Path toKey(final File directory) {
+        return directory.toPath().toAbsolutePath().normalize();
+    }
+
+    // The same comparison as LfsElement.matchesName
+    private static String toNameKey(final String name) {
+        return Util.firstElementOf(name.trim(), " ").toUpperCase();
+    }
+
+    private static final class Contents {
+        final List<LfsElement> elements;
+        final Map<String, LfsElement> byName = new HashMap<>();
+
+        Contents(final List<LfsElement> elements) {
+            this.elements = Collections.unmodifiableList(elements);
+            for (LfsElement e : elements) {
+                // The first match wins, as it does when searching the list
+                byName.putIfAbsent(e.getName().toUpperCase(), e);
+            }
+        }
+    }
+
+    //
+    // Watching
+    //
+    private static WatchService createWatcher() {
+        try {
+            final WatchService watcher = FileSystems.getDefault().newWatchService();
+            final Thread thread = new Thread(() -> watch(watcher), "directory-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            return watcher;
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    private static WatchKey register(final DirectoryIndex index) {
+        if (WATCHER == null) {
+            return null;
+        }
+        try {
+            final WatchKey key = index.path.register(
+                    WATCHER,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY
+            );
+            WATCH_KEYS.put(key, index);
+            return key;
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    private static void watch(final WatchService watcher) {
+        try {
+            while (true) {
+                final WatchKey key = watcher.take();
+                key.pollEvents();
+                final DirectoryIndex index = WATCH_KEYS.get(key);
+                if (index != null) {
+                    index.invalidate();
+                }
+                if (!key.reset()) {
+                    // The directory has gone - a fresh index is made if it is used again
+                    WATCH_KEYS.remove(key);
+                    if (index != null) {
+                        synchronized (INDEXES) {
+                            if (INDEXES.get(index.path) == index) {
+                                INDEXES.remove(index.path);
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            // Nothing to do here
+        }
+    }
+}
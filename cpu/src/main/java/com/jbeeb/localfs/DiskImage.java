@@ -1,54 +1,99 @@
 package com.jbeeb.localfs;
 
 import com.jbeeb.util.LruCache;
+import com.jbeeb.util.SystemStatus;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public final class DiskImage implements LfsElement {
 
-    private static final LruCache<File, DiskImage> CACHE = new LruCache<>(10);
+    //
+    // Parsed catalogues are shared by every emulator instance. They are keyed by path and modification time so
+    // an image that is rewritten is read again, and bounded by both count and the total size of the images held.
+    // The cache is locked while in use as more than one thread can reach it. Every lookup bumps the cache
+    // version so that its stats need only be published when they may have changed.
+    //
+    private static final int MAX_CACHED_IMAGES = 32;
+    private static final long MAX_CACHED_BYTES = 16L * 1024 * 1024;
+    private static final LruCache<String, Catalogue> CACHE = new LruCache<>(MAX_CACHED_IMAGES, MAX_CACHED_BYTES, c -> c.image.length);
+    private static volatile long cacheVersion;
 
     private final LfsElement parent;
-    private final Map<FileMetadata, byte[]> files;
-    private final ByteBuffer data;
+    private final Catalogue catalogue;
 
-    private DiskImage(final LfsElement parent, final File file) throws IOException {
+    private DiskImage(final LfsElement parent, final Catalogue catalogue) {
         this.parent = parent;
-        final byte[] bytes = new byte[(int) file.length()];
-        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
-            int i = 0;
-            int v;
-            while ((v = in.read()) >= 0) {
-                bytes[i++] = (byte) v;
+        this.catalogue = catalogue;
+    }
+
+    @FunctionalInterface
+    interface ImageSource {
+        byte[] read() throws IOException;
+    }
+
+    public static DiskImage of(final LfsElement parent, final File file) throws IOException {
+        return of(parent, file.getAbsolutePath() + ":" + file.lastModified(), () -> Files.readAllBytes(file.toPath()));
+    }
+
+    // For images that don't come straight from a file, such as those inflated from an archive
+    static DiskImage of(final LfsElement parent, final String key, final ImageSource source) throws IOException {
+        Catalogue catalogue;
+        synchronized (CACHE) {
+            catalogue = CACHE.get(key);
+            cacheVersion++;
+        }
+        if (catalogue == null) {
+            // Read without holding the lock - at worst two threads read the same image
+            catalogue = new Catalogue(source.read());
+            synchronized (CACHE) {
+                CACHE.put(key, catalogue);
+                cacheVersion++;
             }
         }
-        this.data = ByteBuffer.wrap(bytes);
-        this.files = getFiles(data);
+        return new DiskImage(parent, catalogue);
+    }
+
+    public static long getCacheVersion() {
+        return cacheVersion;
+    }
+
+    public static void updateCacheStatus(final SystemStatus systemStatus) {
+        synchronized (CACHE) {
+            systemStatus.putLong(SystemStatus.KEY_DISC_IMAGE_CACHE_HITS, CACHE.getHitCount());
+            systemStatus.putLong(SystemStatus.KEY_DISC_IMAGE_CACHE_MISSES, CACHE.getMissCount());
+            systemStatus.putLong(SystemStatus.KEY_DISC_IMAGE_CACHE_EVICTIONS, CACHE.getEvictionCount());
+        }
     }
 
-    public synchronized static DiskImage of(final LfsElement parent, final File file) throws IOException {
-        DiskImage img = CACHE.get(file);
-        if (img == null) {
-            img = new DiskImage(parent, file);
-            CACHE.put(file, img);
+    //
+    // The whole image and the extent of each file in it. Never modified once read so it can be shared freely.
+    //
+    private static final class Catalogue {
+        final byte[] image;
+        final String diskName;
+        final List<FileMetadata> files;
+
+        Catalogue(final byte[] image) {
+            this.image = image;
+            this.diskName = readDiskName(image);
+            this.files = getFiles(image);
         }
-        return img;
     }
 
     private static final class FileElement implements LfsElement {
 
         private final LfsElement parent;
         private final FileMetadata metadata;
-        private final byte[] data;
+        private final byte[] image;
 
-        public FileElement(LfsElement parent, FileMetadata metadata, byte[] data) {
+        public FileElement(LfsElement parent, FileMetadata metadata, byte[] image) {
             this.parent = parent;
             this.metadata = metadata;
-            this.data = data;
+            this.image = image;
         }
 
         @Override
@@ -73,7 +118,7 @@ public final class DiskImage implements LfsElement {
 
         @Override
         public int length() {
-            return data.length;
+            return metadata.length;
         }
 
         @Override
@@ -107,7 +152,7 @@ public final class DiskImage implements LfsElement {
 
         @Override
         public RandomAccessData getData() throws IOException {
-            return new ByteRandomAccessData(this.data);
+            return new ByteRandomAccessData(image, metadata.startSector * 256, metadata.length);
         }
     }
 
@@ -143,9 +188,9 @@ public final class DiskImage implements LfsElement {
 
     @Override
     public List<? extends LfsElement> list() {
-        final List<LfsElement> ret = new ArrayList<>(files.size());
-        for (Map.Entry<FileMetadata, byte[]> e : files.entrySet()) {
-            ret.add(new FileElement(this, e.getKey(), e.getValue()));
+        final List<LfsElement> ret = new ArrayList<>(catalogue.files.size());
+        for (FileMetadata metadata : catalogue.files) {
+            ret.add(new FileElement(this, metadata, catalogue.image));
         }
         return ret;
     }
@@ -191,19 +236,25 @@ public final class DiskImage implements LfsElement {
         }
     }
 
-    private static Map<FileMetadata, byte[]> getFiles(final ByteBuffer data) {
-        final Map<FileMetadata, byte[]> ret = new HashMap<>();
+    private static List<FileMetadata> getFiles(final byte[] image) {
+        final Set<FileMetadata> ret = new LinkedHashSet<>();
+        final ByteBuffer data = ByteBuffer.wrap(image);
         for (int i = 1; i < 32; i++) {
             // Get filename and directory name
-            data.position(i * 8);
             final byte[] nameBytes = new byte[8];
-            data.get(nameBytes);
-            if (allZeros(nameBytes)) {
+            final byte[] metaBytes = new byte[8];
+            try {
+                data.position(i * 8);
+                data.get(nameBytes);
+                if (allZeros(nameBytes)) {
+                    break;
+                }
+                data.position(256 + i * 8);
+                data.get(metaBytes);
+            } catch (Exception ex) {
+                ex.printStackTrace();
                 break;
             }
-            data.position(256 + i * 8);
-            final byte[] metaBytes = new byte[8];
-            data.get(metaBytes);
 
             final int length = getLength(metaBytes);
             final int loadAddress = getLoadAddress(metaBytes);
@@ -214,18 +265,13 @@ public final class DiskImage implements LfsElement {
             final boolean locked = (nameBytes[7] & 0x80) != 0;
             nameBytes[7] &= 0x7F;
             final String directory = new String(nameBytes, 7, 1);
-            final FileMetadata fileMetadata = new FileMetadata(directory, name, loadAddress, execAddress, length, startSector);
-            final byte[] fileData = new byte[length];
-            try {
-                data.position(256 * startSector);
-                data.get(fileData);
-                ret.put(fileMetadata, fileData);
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                int x = 1;
+
+            // Files that run off the end of the image are left out
+            if (256L * startSector + length <= image.length) {
+                ret.add(new FileMetadata(directory, name, loadAddress, execAddress, length, startSector));
             }
         }
-        return ret;
+        return new ArrayList<>(ret);
     }
 
     private static int getLoadAddress(final byte[] metaBytes) {
@@ -263,11 +309,13 @@ public final class DiskImage implements LfsElement {
     }
 
     public String getDiskName() {
+        return catalogue.diskName;
+    }
+
+    private static String readDiskName(final byte[] image) {
         final byte[] bytes = new byte[12];
-        data.position(0);
-        data.get(bytes, 0, 8);
-        data.position(256);
-        data.get(bytes, 8, 4);
+        System.arraycopy(image, 0, bytes, 0, Math.max(0, Math.min(8, image.length)));
+        System.arraycopy(image, Math.min(256, image.length), bytes, 8, Math.max(0, Math.min(4, image.length - 256)));
         return new String(bytes, StandardCharsets.UTF_8).trim();
     }
 }
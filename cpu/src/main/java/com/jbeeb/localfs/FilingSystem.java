@@ -2,9 +2,13 @@ package com.jbeeb.localfs;
 
 import com.jbeeb.cpu.Cpu;
 import com.jbeeb.cpu.CpuUtil;
+import com.jbeeb.cpu.DeferredOutput;
+import com.jbeeb.cpu.Flag;
 import com.jbeeb.memory.AtomicFetchIntercept;
+import com.jbeeb.memory.FetchIntercept;
 import com.jbeeb.memory.Memory;
 import com.jbeeb.memory.ReadOnlyMemory;
+import com.jbeeb.util.SystemStatus;
 import com.jbeeb.util.Util;
 
 import java.nio.ByteBuffer;
@@ -30,6 +34,21 @@ public abstract class FilingSystem extends ReadOnlyMemory  {
     private static final int OSGBPB_ENTRY =     0x900A;
     private static final int OSFIND_ENTRY =     0x900C;
     private static final int OSFSC_ENTRY =      0x900E;
+    private static final int DRAIN_ENTRY =      0x9010;
+    private static final int DRAIN_EXIT =       0x9018;
+
+    private static final int OSWRCH = 0xFFEE;
+
+    //
+    // Writes queued text through OSWRCH. An intercept on the first instruction loads the next character into A
+    // and sets carry once there are none left, and another on the RTS puts back the caller's registers.
+    //
+    private static final int[] DRAIN_CODE = {
+            0xB0, DRAIN_EXIT - (DRAIN_ENTRY + 2),           // BCS DRAIN_EXIT
+            0x20, OSWRCH & 0xFF, OSWRCH >>> 8,                // JSR OSWRCH
+            0x4C, DRAIN_ENTRY & 0xFF, DRAIN_ENTRY >>> 8,      // JMP DRAIN_ENTRY
+            0x60                                            // RTS
+    };
 
     private final Map<String, CommandHandler> osfscCommandHandlers = new HashMap<>();
 
@@ -74,7 +93,9 @@ public abstract class FilingSystem extends ReadOnlyMemory  {
         buf.put(Util.stringToBytes(copyright));
         buf.put((byte) 0);
 
-        return Util.toIntArray(buf.array(), 0x4000);
+        final int[] rom = Util.toIntArray(buf.array(), 0x4000);
+        System.arraycopy(DRAIN_CODE, 0, rom, DRAIN_ENTRY - 0x8000, DRAIN_CODE.length);
+        return rom;
     }
 
     public final void initialiseFilesystem(final Cpu cpu, final Memory memory) {
@@ -85,13 +106,24 @@ public abstract class FilingSystem extends ReadOnlyMemory  {
 
     public final void initialise(final Cpu cpu, final Memory memory) {
         installIntercept(cpu, SERVICE_ENTRY, () -> serviceRoutine(cpu, memory));
-        installIntercept(cpu, OSFILE_ENTRY, () -> osfile(cpu, memory));
+        installIntercept(cpu, OSFILE_ENTRY, () -> {
+            osfile(cpu, memory);
+            updateStatus(cpu.getSystemStatus());
+        });
         installIntercept(cpu, OSARGS_ENTRY, () -> osargs(cpu, memory));
         installIntercept(cpu, OSBGET_ENTRY, () -> osbget(cpu, memory));
         installIntercept(cpu, OSBPUT_ENTRY, () -> osbput(cpu, memory));
         installIntercept(cpu, OSGBPB_ENTRY, () -> osgbpb(cpu, memory));
-        installIntercept(cpu, OSFIND_ENTRY, () -> osfind(cpu, memory));
-        installIntercept(cpu, OSFSC_ENTRY, () -> osfsc(cpu, memory));
+        installIntercept(cpu, OSFIND_ENTRY, () -> {
+            osfind(cpu, memory);
+            updateStatus(cpu.getSystemStatus());
+        });
+        installIntercept(cpu, OSFSC_ENTRY, () -> {
+            osfsc(cpu, memory);
+            updateStatus(cpu.getSystemStatus());
+        });
+        installIntercept(DRAIN_ENTRY, () -> nextDeferredCharacter(cpu), false);
+        installIntercept(DRAIN_EXIT, () -> finishDraining(cpu), true);
 
         initialiseCommandHandlers(cpu, memory, osfscCommandHandlers);
     }
@@ -99,7 +131,44 @@ public abstract class FilingSystem extends ReadOnlyMemory  {
     protected abstract void initialiseCommandHandlers(final Cpu cpu, final Memory memory, final Map<String, CommandHandler> handlers);
 
     private void installIntercept(final Cpu cpu, final int address, final Runnable runnable) {
-        installIntercept(address, new AtomicFetchIntercept(cpu, runnable), true);
+        final FetchIntercept intercept = new AtomicFetchIntercept(cpu, runnable);
+        installIntercept(address, () -> runDeferringOutput(cpu, address, intercept), true);
+    }
+
+    //
+    // Any text the intercept writes is queued, and if there is some the CPU goes on to the drain routine rather
+    // than the RTS at the entry point. The drain routine's own RTS returns to the caller instead, unless the
+    // intercept has moved the CPU elsewhere (as *RUN does), in which case it carries on from there.
+    //
+    private static boolean runDeferringOutput(final Cpu cpu, final int address, final FetchIntercept intercept) {
+        final DeferredOutput output = cpu.getDeferredOutput();
+        if (!output.begin()) {
+            return intercept.run();
+        }
+        try {
+            intercept.run();
+        } finally {
+            output.end();
+        }
+        if (output.hasPending()) {
+            output.startDraining(cpu, (cpu.getPC() == address) ? -1 : cpu.getPC());
+            cpu.setPC(DRAIN_ENTRY);
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean nextDeferredCharacter(final Cpu cpu) {
+        final int ch = cpu.getDeferredOutput().poll();
+        if (ch >= 0) {
+            cpu.setA(ch, true);
+        }
+        cpu.setFlag(Flag.CARRY, ch < 0);
+        return false;
+    }
+
+    private static boolean finishDraining(final Cpu cpu) {
+        return cpu.getDeferredOutput().finishDraining(cpu);
     }
 
     private void writeVectors(final Memory memory, final Cpu cpu, final int romNumber) {
@@ -131,4 +200,8 @@ public abstract class FilingSystem extends ReadOnlyMemory  {
     protected abstract void osgbpb(Cpu cpu, Memory memory);
     protected abstract void osfind(Cpu cpu, Memory memory);
     protected abstract void osfsc(Cpu cpu, Memory memory);
+
+    // Called after the calls that look files up, for anything the filing system reports in the system status
+    protected void updateStatus(final SystemStatus systemStatus) {
+    }
 }
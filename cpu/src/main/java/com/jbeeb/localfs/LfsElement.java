@@ -8,6 +8,10 @@ import java.util.Objects;
 import java.util.Optional;
 
 public interface LfsElement {
+
+    // The load or execution address of a file that doesn't have one, such as a host file with no .inf sidecar
+    int NO_ADDRESS = 0xFFFFFFFF;
+
     String getName();
     LfsElementType getType();
 
@@ -5,7 +5,8 @@ import java.util.Objects;
 public enum LfsElementType {
     FILE("file", ""),
     DIRECTORY("directory", "<DIR>"),
-    IMAGE("disk image", "<IMG>");
+    IMAGE("disk image", "<IMG>"),
+    ARCHIVE("archive", "<ZIP>");
 
     final String description;
     final String shortDescription;
@@ -2,8 +2,9 @@ package com.jbeeb.localfs;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public final class LocalDirectory extends LocalFileElement implements LfsElement {
 
@@ -34,12 +35,43 @@ public final class LocalDirectory extends LocalFileElement implements LfsElement
         return 0;
     }
 
+    @Override
+    public boolean isDirectory() {
+        return true;
+    }
+
     @Override
     public List<? extends LfsElement> list() {
-        final File[] files = file().listFiles();
-        return (files == null) ?
-                Collections.emptyList() :
-                Arrays.stream(files).map(LocalFileElement::of).collect(Collectors.toList());
+        return DirectoryIndex.of(file()).list();
+    }
+
+    @Override
+    public Optional<? extends LfsElement> findAny(final String name) {
+        return DirectoryIndex.of(file()).find(name);
+    }
+
+    public LocalFile writeFile(final String name, final byte[] data, final int loadAddress, final int execAddress) throws IOException {
+        final File file = resolveFile(name);
+        Files.write(file.toPath(), data);
+        LocalFile.writeInf(file, loadAddress, execAddress, data.length);
+        DirectoryIndex.invalidate(file());
+        return new LocalFile(file);
+    }
+
+    //
+    // The host file for a name chosen by the emulated program. It must name a file directly within this directory,
+    // so anything that could reach another directory is refused.
+    //
+    public File resolveFile(final String name) throws IOException {
+        if (name.isEmpty() || name.contains("/") || name.contains("\\") || name.contains("..") || name.contains(":")) {
+            throw new IOException("Bad name " + name);
+        }
+        final Path directory = file().toPath().toAbsolutePath().normalize();
+        final Path path = directory.resolve(name).normalize();
+        if (!directory.equals(path.getParent())) {
+            throw new IOException("Bad name " + name);
+        }
+        return path.toFile();
     }
 
     @Override
@@ -4,15 +4,31 @@ import com.jbeeb.util.Util;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Collections;
 import java.util.List;
 
 public class LocalFile extends LocalFileElement implements LfsElement {
 
+    //
+    // Load and execution addresses are kept in a sidecar file holding "name load exec length" in hex
+    //
+    static final String INF_SUFFIX = ".inf";
+
+    // Read from the .inf file the first time they are wanted. An element is replaced when its directory changes,
+    // so they can't go stale.
+    private volatile int[] infAddresses;
+
     public LocalFile(final File file) {
         super(file);
     }
 
+    @Override
+    public boolean isDirectory() {
+        return false;
+    }
+
     @Override
     public LfsElementType getType() {
         return LfsElementType.FILE;
@@ -20,14 +36,51 @@ public class LocalFile extends LocalFileElement implements LfsElement {
 
     @Override
     public int getLoadAddress() {
-        // TODO
-        throw new UnsupportedOperationException();
+        return readInfAddress(1);
     }
 
     @Override
     public int getExecAddress() {
-        // TODO
-        throw new UnsupportedOperationException();
+        return readInfAddress(2);
+    }
+
+    private int readInfAddress(final int field) {
+        int[] addresses = infAddresses;
+        if (addresses == null) {
+            byte[] inf = new byte[0];
+            final File infFile = infFile(file());
+            if (infFile.isFile()) {
+                try {
+                    inf = Files.readAllBytes(infFile.toPath());
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            addresses = new int[]{NO_ADDRESS, parseInfAddress(inf, 1), parseInfAddress(inf, 2)};
+            infAddresses = addresses;
+        }
+        return addresses[field];
+    }
+
+    static int parseInfAddress(final byte[] inf, final int field) {
+        final String[] toks = new String(inf, StandardCharsets.US_ASCII).trim().split("\\s+");
+        if (toks.length > field) {
+            try {
+                return (int) Long.parseLong(toks[field], 16);
+            } catch (NumberFormatException ex) {
+                ex.printStackTrace();
+            }
+        }
+        return NO_ADDRESS;
+    }
+
+    static File infFile(final File file) {
+        return new File(file.getParentFile(), file.getName() + INF_SUFFIX);
+    }
+
+    static void writeInf(final File file, final int loadAddress, final int execAddress, final int length) throws IOException {
+        final String inf = String.format("$.%s %08X %08X %08X%n", file.getName(), loadAddress, execAddress, length);
+        Files.write(infFile(file).toPath(), inf.getBytes(StandardCharsets.US_ASCII));
     }
 
     @Override
@@ -0,0 +1,267 @@
+package com.jbeeb.localfs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//
+// A host file opened through OSFIND. Writes collect in a buffer while they follow on from one another and only
+// reach the file when the buffer fills, the pointer moves elsewhere, the file is read or it is closed - so a
+// program writing a byte at a time costs a handful of system calls rather than one per byte.
+//
+// Reads are served from a buffer too. While one block is being read by the emulator the next is fetched on a
+// background thread, starting with the first block as soon as the file is opened, so OSBGET and *EXEC rarely
+// wait for the file system.
+//
+public final class LocalFileData implements RandomAccessData {
+
+    private static final int WRITE_BUFFER_SIZE = 16384;
+    private static final int READ_BUFFER_SIZE = 16384;
+
+    private static final ExecutorService READ_AHEAD = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "file-read-ahead");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final FileChannel channel;
+    private final boolean writable;
+    private final byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+    private final byte[] single = new byte[1];
+
+    // File offset of the first buffered byte, and how many bytes are buffered
+    private long bufferStart;
+    private int bufferCount;
+
+    // The block being read, and the one after it being fetched in the background
+    private byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+    private byte[] readAheadBuffer = new byte[READ_BUFFER_SIZE];
+    private long readStart;
+    private int readCount;
+    private long readAheadStart;
+    private Future<Integer> readAhead;
+
+    private long position;
+    private long length;
+
+    private LocalFileData(final FileChannel channel, final boolean writable) throws IOException {
+        this.channel = Objects.requireNonNull(channel);
+        this.writable = writable;
+        this.length = channel.size();
+    }
+
+    public static LocalFileData open(final File file, final boolean truncate) throws IOException {
+        if (!truncate) {
+            return new LocalFileData(FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE), true);
+        }
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        // The file may be new, which needs to show up in its directory straight away
+        DirectoryIndex.invalidate(file.getAbsoluteFile().getParentFile());
+        return new LocalFileData(channel, true);
+    }
+
+    public static LocalFileData openForRead(final File file) throws IOException {
+        final LocalFileData data = new LocalFileData(FileChannel.open(file.toPath(), StandardOpenOption.READ), false);
+        data.startReadAhead(0L);
+        return data;
+    }
+
+    @Override
+    public byte read() throws IOException {
+        if (position >= length) {
+            throw new IOException("End of file");
+        }
+        if (!isBuffered(position)) {
+            fillReadBuffer();
+        }
+        return readBuffer[(int) (position++ - readStart)];
+    }
+
+    @Override
+    public int read(final byte[] data, int offset, final int length) throws IOException {
+        int count = 0;
+        while (count < length && position < this.length) {
+            if (!isBuffered(position)) {
+                fillReadBuffer();
+            }
+            final int index = (int) (position - readStart);
+            final int n = Math.min(length - count, readCount - index);
+            System.arraycopy(readBuffer, index, data, offset, n);
+            offset += n;
+            count += n;
+            position += n;
+        }
+        return count;
+    }
+
+    private boolean isBuffered(final long position) {
+        return position >= readStart && position < readStart + readCount;
+    }
+
+    private void fillReadBuffer() throws IOException {
+        flush();
+        final boolean ready = (readAhead != null && readAheadStart == position);
+        final int prefetched = awaitReadAhead();
+        if (ready && prefetched > 0) {
+            final byte[] t = readBuffer;
+            readBuffer = readAheadBuffer;
+            readAheadBuffer = t;
+            readCount = prefetched;
+        } else {
+            readCount = readAt(channel, readBuffer, position, length);
+        }
+        readStart = position;
+        startReadAhead(readStart + readCount);
+    }
+
+    private void startReadAhead(final long start) {
+        if (start >= length) {
+            return;
+        }
+        final byte[] target = readAheadBuffer;
+        final long end = length;
+        readAheadStart = start;
+        readAhead = READ_AHEAD.submit(() -> readAt(channel, target, start, end));
+    }
+
+    // Waits for any block being fetched and returns its size, or -1 if there wasn't one or it failed
+    private int awaitReadAhead() {
+        if (readAhead == null) {
+            return -1;
+        }
+        try {
+            return readAhead.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            return -1;
+        } finally {
+            readAhead = null;
+        }
+    }
+
+    //
+    // Anything past the end of the host file but within the extent has been skipped over by moving the pointer,
+    // and reads as zeros
+    //
+    private static int readAt(final FileChannel channel, final byte[] target, final long start, final long end) throws IOException {
+        final ByteBuffer dst = ByteBuffer.wrap(target, 0, (int) Math.min(target.length, Math.max(0L, end - start)));
+        while (dst.hasRemaining()) {
+            if (channel.read(dst, start + dst.position()) < 0) {
+                Arrays.fill(target, dst.position(), dst.limit(), (byte) 0);
+                dst.position(dst.limit());
+            }
+        }
+        return dst.limit();
+    }
+
+    @Override
+    public void write(final byte value) throws IOException {
+        single[0] = value;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] data, int offset, int length) throws IOException {
+        if (!writable) {
+            throw new IOException("Read only");
+        }
+        invalidateReadBuffer();
+        if (bufferCount > 0 && position != bufferStart + bufferCount) {
+            flush();
+        }
+        if (length >= WRITE_BUFFER_SIZE) {
+            // Too big to be worth buffering
+            flush();
+            writeFully(ByteBuffer.wrap(data, offset, length).slice(), position);
+            advance(length);
+            return;
+        }
+        while (length > 0) {
+            if (bufferCount == WRITE_BUFFER_SIZE) {
+                flush();
+            }
+            if (bufferCount == 0) {
+                bufferStart = position;
+            }
+            final int count = Math.min(length, WRITE_BUFFER_SIZE - bufferCount);
+            System.arraycopy(data, offset, buffer, bufferCount, count);
+            bufferCount += count;
+            offset += count;
+            length -= count;
+            advance(count);
+        }
+    }
+
+    private void invalidateReadBuffer() {
+        if (readCount > 0 || readAhead != null) {
+            awaitReadAhead();
+            readCount = 0;
+        }
+    }
+
+    private void advance(final int count) {
+        position += count;
+        length = Math.max(length, position);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (bufferCount > 0) {
+            writeFully(ByteBuffer.wrap(buffer, 0, bufferCount), bufferStart);
+            bufferCount = 0;
+        }
+    }
+
+    private void writeFully(final ByteBuffer src, final long filePosition) throws IOException {
+        while (src.hasRemaining()) {
+            channel.write(src, filePosition + src.position());
+        }
+    }
+
+    //
+    // Moving the pointer past the end extends the file
+    //
+    @Override
+    public void seek(final int position) {
+        this.position = position & 0xFFFFFFFFL;
+        if (writable) {
+            this.length = Math.max(length, this.position);
+        }
+    }
+
+    @Override
+    public int position() {
+        return (int) position;
+    }
+
+    @Override
+    public int length() {
+        return (int) length;
+    }
+
+    @Override
+    public boolean isEOF() {
+        return position >= length;
+    }
+
+    @Override
+    public void close() {
+        try {
+            awaitReadAhead();
+            flush();
+            if (writable && channel.size() < length) {
+                writeFully(ByteBuffer.wrap(new byte[1]), length - 1);
+            }
+            channel.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
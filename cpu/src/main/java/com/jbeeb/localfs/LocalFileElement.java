@@ -22,15 +22,13 @@ public abstract class LocalFileElement implements LfsElement {
         return (parent == null) ? Optional.empty() : Optional.of(new LocalDirectory(parent));
     }
 
-    @Override
-    public boolean isDirectory() {
-        return file.isDirectory();
-    }
-
     public static LfsElement of(final File file) {
         if (file.isDirectory()) {
             return new LocalDirectory(file);
         } else {
+            if (file.getName().toLowerCase().endsWith(".zip")) {
+                return new ZipArchive(file);
+            }
             if (file.getName().toLowerCase().endsWith(".ssd")) {
                 try {
                     final LfsElement parent = LocalFileElement.of(file.getParentFile());
@@ -5,10 +5,12 @@ import com.jbeeb.cpu.CpuUtil;
 import com.jbeeb.cpu.Flag;
 import com.jbeeb.main.BBCMicro;
 import com.jbeeb.memory.Memory;
+import com.jbeeb.util.SystemStatus;
 import com.jbeeb.util.Util;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
@@ -35,6 +37,7 @@ public class LocalFilingSystem extends FilingSystem {
     );
 
     private LfsElement currentDirectory;
+    private long publishedCacheVersion = -1L;
 
     private final RandomAccessData[] openFiles = new RandomAccessData[256]; // Indexed by file handle
 
@@ -218,18 +221,26 @@ public class LocalFilingSystem extends FilingSystem {
     protected void osfileImpl(final Cpu cpu, final Memory memory, final OsFileParameters parms) {
         try {
             System.err.println("OSFILE: A = " + cpu.getA() + " parms = " + parms);
-            final LfsElement file = findFile(parms.getFileName());
-            if (file == null) {
-                fileNotFound(cpu, parms.getFileName());
-                return;
-            }
-            final int fileLoadAddress = file.getLoadAddress();
-            final int fileExecAddress = file.getExecAddress();
-
             switch (cpu.getA()) {
+                case 0: {
+                    save(cpu, memory, parms);
+                    break;
+                }
+
                 case 255: {
-                    final int effectiveLoadAddress = (((parms.getExecAddress() & 0xFF) == 0) ? parms.getLoadAddress() : fileLoadAddress) & 0xFFFF;
+                    final LfsElement file = findFile(parms.getFileName());
+                    if (file == null) {
+                        fileNotFound(cpu, parms.getFileName());
+                        return;
+                    }
+                    final boolean useFileAddress = (parms.getExecAddress() & 0xFF) != 0;
+                    if (useFileAddress && file.getLoadAddress() == LfsElement.NO_ADDRESS) {
+                        CpuUtil.newlineMessage(cpu, "No load address - " + parms.getFileName());
+                        return;
+                    }
+                    final int effectiveLoadAddress = (useFileAddress ? file.getLoadAddress() : parms.getLoadAddress()) & 0xFFFF;
                     load(memory, file, effectiveLoadAddress);
+                    cpu.setA(1, true);
                     break;
                 }
 
@@ -248,11 +259,34 @@ public class LocalFilingSystem extends FilingSystem {
 
     private void load(final Memory memory, final LfsElement file, final int loadAddress) throws IOException {
         final RandomAccessData fileData = file.getData();
-        for (int i = 0; i < fileData.length(); i++) {
-            memory.writeByte(loadAddress + i, (fileData.read() & 0xFF));
+        try {
+            final byte[] data = new byte[fileData.length()];
+            final int length = fileData.read(data, 0, data.length);
+            memory.writeBlock(loadAddress, data, 0, length);
+        } finally {
+            fileData.close();
         }
     }
 
+    private void save(final Cpu cpu, final Memory memory, final OsFileParameters parms) throws IOException {
+        if (!(currentDirectory instanceof LocalDirectory)) {
+            CpuUtil.newlineMessage(cpu, "Cannot save to " + currentDirectory.getName());
+            return;
+        }
+        final int start = parms.getSaveStartAddress() & 0xFFFF;
+        final int end = parms.getSaveEndAddress() & 0xFFFF;
+        final byte[] data = new byte[Math.max(0, end - start)];
+        memory.readBlock(start, data, 0, data.length);
+        ((LocalDirectory) currentDirectory).writeFile(toHostFileName(parms.getFileName()), data, parms.getLoadAddress(), parms.getExecAddress());
+        cpu.setA(1, true);
+    }
+
+    private static String toHostFileName(final String fileName) {
+        final String name = Util.firstElementOf(fileName.replace("\"", "").trim(), " ");
+        // A DFS style directory prefix is dropped
+        return (name.length() > 2 && name.charAt(1) == '.') ? name.substring(2) : name;
+    }
+
     private void loadAndRunFile(final Cpu cpu, final Memory memory, final LfsElement file, final int loadAddress, final int execAddress) throws IOException {
         load(memory, file, loadAddress);
         cpu.setPC(execAddress & 0xFFFF);
@@ -260,7 +294,63 @@ public class LocalFilingSystem extends FilingSystem {
 
     @Override
     protected void osargs(final Cpu cpu, final Memory memory) {
-        System.err.println("OSARGS");
+        final int handle = cpu.getY();
+        final int zp = cpu.getX();
+        try {
+            if (handle == 0) {
+                switch (cpu.getA()) {
+                    case 0:
+                        // Filing system number - reported as disc
+                        cpu.setA(4, true);
+                        break;
+                    case 0xFF:
+                        flushAll();
+                        break;
+                }
+                return;
+            }
+
+            final RandomAccessData file = getOpenFile(cpu, handle);
+            if (file == null) {
+                return;
+            }
+            switch (cpu.getA()) {
+                case 0:
+                    // Read PTR#
+                    writeDoubleWord(memory, zp, file.position());
+                    break;
+                case 1:
+                    // Write PTR#
+                    file.seek(readDoubleWord(memory, zp));
+                    break;
+                case 2:
+                    // Read EXT#
+                    writeDoubleWord(memory, zp, file.length());
+                    break;
+                case 0xFF:
+                    file.flush();
+                    break;
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            CpuUtil.newlineMessage(cpu, "error - " + ex.getMessage());
+        }
+    }
+
+    private RandomAccessData getOpenFile(final Cpu cpu, final int handle) {
+        final RandomAccessData file = (handle >= 0 && handle <= 255) ? openFiles[handle] : null;
+        if (file == null) {
+            CpuUtil.newlineMessage(cpu, "Bad file handle - " + handle);
+        }
+        return file;
+    }
+
+    private void flushAll() throws IOException {
+        for (RandomAccessData file : openFiles) {
+            if (file != null) {
+                file.flush();
+            }
+        }
     }
 
     @Override
@@ -292,32 +382,187 @@ public class LocalFilingSystem extends FilingSystem {
 
     @Override
     protected void osbput(final Cpu cpu, final Memory memory) {
-        int x = 1;
-        System.err.println("OSBPUT");
+        final RandomAccessData file = getOpenFile(cpu, cpu.getY());
+        if (file == null) {
+            return;
+        }
+        try {
+            file.write((byte) cpu.getA());
+        } catch (Exception ex) {
+            CpuUtil.newlineMessage(cpu, "Exception - " + ex.getMessage());
+        }
     }
 
+    //
+    // OSGBPB control block offsets
+    //
+    private static final int GBPB_HANDLE = 0;
+    private static final int GBPB_ADDRESS = 1;
+    private static final int GBPB_COUNT = 5;
+    private static final int GBPB_POINTER = 9;
+
+    // Transfers are limited to the I/O processor's memory
+    private static final int MAX_TRANSFER = 0x10000;
+
     @Override
     protected void osgbpb(final Cpu cpu, final Memory memory) {
-        System.err.println("OSGBPB");
+        final int block = (cpu.getX() & 0xFF) | ((cpu.getY() & 0xFF) << 8);
+        final int reason = cpu.getA();
+        try {
+            final boolean complete;
+            switch (reason) {
+                case 1:
+                case 2:
+                case 3:
+                case 4:
+                    complete = transferBytes(cpu, memory, block, reason);
+                    break;
+
+                case 5: {
+                    // Title and boot option
+                    final String title = (currentDirectory instanceof DiskImage) ? ((DiskImage) currentDirectory).getDiskName() : currentDirectory.getName();
+                    complete = writeInfo(memory, block, lengthPrefixed(title), new byte[]{0});
+                    break;
+                }
+
+                case 6:
+                case 7:
+                    // Current directory or library, always drive 0 and "$"
+                    complete = writeInfo(memory, block, lengthPrefixed("0"), lengthPrefixed("$"));
+                    break;
+
+                case 8:
+                    complete = transferNames(memory, block);
+                    break;
+
+                default:
+                    // Not supported - A is left unchanged
+                    return;
+            }
+            cpu.setA(0, true);
+            cpu.setFlag(Flag.CARRY, !complete);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            CpuUtil.newlineMessage(cpu, "error - " + ex.getMessage());
+            cpu.setFlag(Flag.CARRY, true);
+        }
+    }
+
+    //
+    // Reasons 1 and 2 put bytes, 3 and 4 get them. The odd numbered reasons first move to the pointer given in
+    // the control block. The whole transfer is a single copy between the file and memory.
+    //
+    private boolean transferBytes(final Cpu cpu, final Memory memory, final int block, final int reason) throws IOException {
+        final int handle = memory.readByte(block + GBPB_HANDLE);
+        final RandomAccessData file = openFiles[handle];
+        if (file == null) {
+            CpuUtil.newlineMessage(cpu, "Bad file handle - " + handle);
+            return false;
+        }
+
+        if (reason == 1 || reason == 3) {
+            file.seek(readDoubleWord(memory, block + GBPB_POINTER));
+        }
+
+        final int address = readDoubleWord(memory, block + GBPB_ADDRESS);
+        final int count = readDoubleWord(memory, block + GBPB_COUNT);
+        final int length = (int) Math.min(Integer.toUnsignedLong(count), MAX_TRANSFER - (address & 0xFFFF));
+        final byte[] data = new byte[length];
+        final int transferred;
+        if (reason <= 2) {
+            memory.readBlock(address & 0xFFFF, data, 0, length);
+            file.write(data, 0, length);
+            transferred = length;
+        } else {
+            transferred = file.read(data, 0, length);
+            memory.writeBlock(address & 0xFFFF, data, 0, transferred);
+        }
+
+        writeDoubleWord(memory, block + GBPB_ADDRESS, address + transferred);
+        writeDoubleWord(memory, block + GBPB_COUNT, count - transferred);
+        writeDoubleWord(memory, block + GBPB_POINTER, file.position());
+        return transferred == count;
+    }
+
+    //
+    // Names of the files in the current directory, each preceded by its length. The pointer in the control
+    // block is the index of the first name wanted.
+    //
+    private boolean transferNames(final Memory memory, final int block) {
+        final List<String> names = currentDirectory.list().stream()
+                .filter(LfsElement::isFile)
+                .map(LfsElement::getName)
+                .sorted()
+                .collect(Collectors.toList());
+
+        final int address = readDoubleWord(memory, block + GBPB_ADDRESS);
+        final int count = readDoubleWord(memory, block + GBPB_COUNT);
+        final int index = readDoubleWord(memory, block + GBPB_POINTER);
+
+        final ByteBuffer data = ByteBuffer.allocate(MAX_TRANSFER);
+        int transferred = 0;
+        while (transferred < count && index + transferred < names.size()) {
+            final byte[] name = lengthPrefixed(names.get(index + transferred));
+            if (data.position() + name.length > MAX_TRANSFER - (address & 0xFFFF)) {
+                break;
+            }
+            data.put(name);
+            transferred++;
+        }
+        memory.writeBlock(address & 0xFFFF, data.array(), 0, data.position());
+
+        memory.writeByte(block + GBPB_HANDLE, 0);
+        writeDoubleWord(memory, block + GBPB_ADDRESS, address + data.position());
+        writeDoubleWord(memory, block + GBPB_COUNT, count - transferred);
+        writeDoubleWord(memory, block + GBPB_POINTER, index + transferred);
+        return transferred == count;
+    }
+
+    private static boolean writeInfo(final Memory memory, final int block, final byte[] first, final byte[] second) {
+        final int address = readDoubleWord(memory, block + GBPB_ADDRESS) & 0xFFFF;
+        memory.writeBlock(address, first, 0, first.length);
+        memory.writeBlock(address + first.length, second, 0, second.length);
+        return true;
+    }
+
+    private static byte[] lengthPrefixed(final String s) {
+        final byte[] chars = Util.stringToBytes(s);
+        final byte[] ret = new byte[Math.min(chars.length, 255) + 1];
+        ret[0] = (byte) (ret.length - 1);
+        System.arraycopy(chars, 0, ret, 1, ret.length - 1);
+        return ret;
+    }
+
+    private static int readDoubleWord(final Memory memory, final int address) {
+        return memory.readWord(address) | (memory.readWord(address + 2) << 16);
+    }
+
+    private static void writeDoubleWord(final Memory memory, final int address, final int value) {
+        memory.writeWord(address, value & 0xFFFF);
+        memory.writeWord(address + 2, (value >>> 16) & 0xFFFF);
     }
 
     @Override
     protected void osfind(final Cpu cpu, final Memory memory) {
         if (cpu.getA() == 0) {
-            // Close a file
+            // Close a file, or all of them if the handle is zero
             final int handle = cpu.getY();
-            if (openFiles[handle] != null) {
-                openFiles[handle].close();
+            for (int i = 1; i < openFiles.length; i++) {
+                if ((handle == 0 || handle == i) && openFiles[i] != null) {
+                    openFiles[i].close();
+                    openFiles[i] = null;
+                }
             }
         } else {
             final String fileName = CpuUtil.readStringAbsolute(memory, (cpu.getX() & 0xFF) | ((cpu.getY() & 0xFF) << 8));
+            final int mode = cpu.getA() & 0xC0;
+            System.err.println("OSFIND: fileName = " + fileName + " action = " + cpu.getA());
             final LfsElement element = findFile(fileName);
-            if (element == null) {
+            if (element == null && mode != 0x80) {
                 CpuUtil.newlineMessage(cpu, "File not found - " + fileName);
                 cpu.setA(0, true);
                 return;
             }
-            System.err.println("OSFIND: fileName = " + fileName + " action = " + cpu.getA());
             final int handle = getFreeFileHandle(cpu);
             if (handle < 0) {
                 CpuUtil.newlineMessage(cpu, "Too many open files");
@@ -326,29 +571,50 @@ public class LocalFilingSystem extends FilingSystem {
             }
 
             try {
-                openFiles[handle] = element.getData();
+                switch (mode) {
+                    case 0x80:
+                        // Output only - the file is created or emptied
+                        openFiles[handle] = LocalFileData.open(getHostFile(element, fileName), true);
+                        break;
+                    case 0xC0:
+                        // Random access
+                        openFiles[handle] = (element instanceof LocalFile) ?
+                                LocalFileData.open(((LocalFile) element).file(), false) :
+                                element.getData();
+                        break;
+                    default:
+                        // Input only - host files are read ahead in the background from here on
+                        openFiles[handle] = (element instanceof LocalFile) ?
+                                LocalFileData.openForRead(((LocalFile) element).file()) :
+                                element.getData();
+                        break;
+                }
             } catch (Exception ex) {
                 CpuUtil.newlineMessage(cpu, "Exception - " + ex.getMessage());
                 cpu.setA(0, true);
                 return;
             }
+            cpu.setA(handle, true);
+        }
+    }
 
-            switch (cpu.getA()) {
-                case 0x40: {
-                    cpu.setA(handle, true);
-                    break;
-                }
-                case 0x80: {
-                    // Output only
-                    cpu.setA(handle, true);
-                    break;
-                }
-                case 0xc0: {
-                    // Random access
-                    cpu.setA(handle, true);
-                    break;
-                }
-            }
+    private File getHostFile(final LfsElement element, final String fileName) throws IOException {
+        if (element instanceof LocalFile) {
+            return ((LocalFile) element).file();
+        }
+        if (element == null && currentDirectory instanceof LocalDirectory) {
+            return ((LocalDirectory) currentDirectory).resolveFile(toHostFileName(fileName));
+        }
+        throw new IOException("Cannot write to " + currentDirectory.getName());
+    }
+
+    @Override
+    protected void updateStatus(final SystemStatus systemStatus) {
+        // Called after every filing system call, so only take the cache lock when there is something new to show
+        final long version = DiskImage.getCacheVersion();
+        if (version != publishedCacheVersion) {
+            publishedCacheVersion = version;
+            DiskImage.updateCacheStatus(systemStatus);
         }
     }
 
@@ -361,7 +627,9 @@ public class LocalFilingSystem extends FilingSystem {
                 break;
             }
             case 1: {
-                System.err.println("OSFSC: EOF check " + cpu.getX());
+                // EOF check
+                final RandomAccessData file = getOpenFile(cpu, cpu.getX());
+                cpu.setX((file != null && file.isEOF()) ? 0xFF : 0, true);
                 break;
             }
 
@@ -381,6 +649,8 @@ public class LocalFilingSystem extends FilingSystem {
                 if (file == null) {
                     fileNotFound(cpu, fileName);
                     return;
+                } else if (file.getLoadAddress() == LfsElement.NO_ADDRESS || file.getExecAddress() == LfsElement.NO_ADDRESS) {
+                    CpuUtil.newlineMessage(cpu, "No load address - " + fileName);
                 } else {
                     try {
                         loadAndRunFile(cpu, memory, file, file.getLoadAddress() & 0xFFFF, file.getExecAddress() & 0xFFFF);
@@ -4,7 +4,30 @@ import java.io.IOException;
 
 public interface RandomAccessData {
     byte read() throws IOException;
+
+    default int read(final byte[] data, final int offset, final int length) throws IOException {
+        int count = 0;
+        while (count < length && !isEOF()) {
+            data[offset + count] = read();
+            count++;
+        }
+        return count;
+    }
+
+    default void write(final byte value) throws IOException {
+        write(new byte[]{value}, 0, 1);
+    }
+
+    default void write(final byte[] data, final int offset, final int length) throws IOException {
+        throw new IOException("Read only");
+    }
+
+    default void flush() throws IOException {
+        // Nothing to do here
+    }
+
     void seek(int position) throws IOException;
+    int position();
     int length();
     boolean isEOF();
     void close();
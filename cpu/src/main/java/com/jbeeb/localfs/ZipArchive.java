@@ -0,0 +1,316 @@
+package com.jbeeb.localfs;
+
+import com.jbeeb.util.LruCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+//
+// A zip archive browsed as a directory without extracting it. The archive's central directory is read once, when
+// it is first listed, and the archive is then kept open alongside that index (cached by path and modification
+// time) so that opening an entry only inflates that entry. The archive is closed when its index leaves the
+// cache. Disc images inflated from an archive share the bounded cache of parsed images in DiskImage.
+//
+// Folders within the archive are flattened. Where that would give two entries the same name, the later ones are
+// listed under their full path within the archive instead, so none of them are hidden.
+//
+public final class ZipArchive extends LocalFileElement implements LfsElement {
+
+    private static final int MAX_CACHED_INDEXES = 64;
+    private static final LruCache<String, Index> INDEXES = new LruCache<>(MAX_CACHED_INDEXES, Index::close);
+
+    public ZipArchive(final File file) {
+        super(file);
+    }
+
+    @Override
+    public LfsElementType getType() {
+        return LfsElementType.ARCHIVE;
+    }
+
+    @Override
+    public int getLoadAddress() {
+        return 0;
+    }
+
+    @Override
+    public int getExecAddress() {
+        return 0;
+    }
+
+    @Override
+    public int length() {
+        return 0;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return true;
+    }
+
+    @Override
+    public List<? extends LfsElement> list() {
+        final List<Entry> entries;
+        synchronized (INDEXES) {
+            final Index index = getIndex();
+            entries = (index == null) ? Collections.emptyList() : index.entries;
+        }
+        final List<LfsElement> ret = new ArrayList<>(entries.size());
+        for (Entry e : entries) {
+            if (!e.isInf()) {
+                ret.add(e.isImage() ? new ImageElement(this, e) : new FileElement(this, e));
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public RandomAccessData getData() throws IOException {
+        throw new IOException("Cannot open directory for read");
+    }
+
+    @Override
+    public final String toString() {
+        return "(" + getName() + ")";
+    }
+
+    private String getKey() {
+        return file().getAbsolutePath() + ":" + file().lastModified();
+    }
+
+    // Must be called holding the lock on INDEXES
+    private Index getIndex() {
+        final String key = getKey();
+        Index index = INDEXES.get(key);
+        if (index == null) {
+            try {
+                index = new Index(new ZipFile(file()));
+                INDEXES.put(key, index);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        return index;
+    }
+
+    private Optional<Entry> findEntry(final String path) {
+        synchronized (INDEXES) {
+            final Index index = getIndex();
+            return (index == null) ? Optional.empty() : Optional.ofNullable(index.byPath.get(path.toLowerCase()));
+        }
+    }
+
+    //
+    // Read holding the lock so that the archive can't be closed part way through by its index being evicted
+    //
+    private byte[] readEntry(final String path) throws IOException {
+        synchronized (INDEXES) {
+            final Index index = getIndex();
+            final ZipEntry entry = (index == null) ? null : index.zip.getEntry(path);
+            if (entry == null) {
+                throw new IOException(path + ": not found in " + getName());
+            }
+            try (InputStream in = index.zip.getInputStream(entry)) {
+                return in.readAllBytes();
+            }
+        }
+    }
+
+    private static final class Index {
+        final ZipFile zip;
+        final List<Entry> entries = new ArrayList<>();
+        final Map<String, Entry> byPath = new HashMap<>();
+
+        Index(final ZipFile zip) {
+            this.zip = zip;
+            final Set<String> names = new HashSet<>();
+            final Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+            while (zipEntries.hasMoreElements()) {
+                final ZipEntry zipEntry = zipEntries.nextElement();
+                if (!zipEntry.isDirectory()) {
+                    final String path = zipEntry.getName();
+                    final String baseName = path.substring(path.lastIndexOf('/') + 1);
+                    final boolean unique = names.add(baseName.toUpperCase());
+                    final Entry entry = new Entry(path, unique ? baseName : path, zipEntry.getSize());
+                    entries.add(entry);
+                    byPath.put(path.toLowerCase(), entry);
+                }
+            }
+        }
+
+        void close() {
+            try {
+                zip.close();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private static final class Entry {
+        final String path;
+        final String name;
+        final long size;
+
+        Entry(final String path, final String name, final long size) {
+            this.path = path;
+            this.name = name;
+            this.size = size;
+        }
+
+        boolean isImage() {
+            return name.toLowerCase().endsWith(".ssd");
+        }
+
+        boolean isInf() {
+            return name.toLowerCase().endsWith(LocalFile.INF_SUFFIX);
+        }
+    }
+
+    private static final class FileElement implements LfsElement {
+
+        private final ZipArchive archive;
+        private final Entry entry;
+
+        // Read from the entry's .inf sidecar in the archive the first time they are wanted
+        private byte[] inf;
+
+        FileElement(final ZipArchive archive, final Entry entry) {
+            this.archive = archive;
+            this.entry = entry;
+        }
+
+        private int readInfAddress(final int field) {
+            if (inf == null) {
+                inf = new byte[0];
+                final Optional<Entry> infEntry = archive.findEntry(entry.path + LocalFile.INF_SUFFIX);
+                if (infEntry.isPresent()) {
+                    try {
+                        inf = archive.readEntry(infEntry.get().path);
+                    } catch (IOException ex) {
+                        ex.printStackTrace();
+                    }
+                }
+            }
+            return LocalFile.parseInfAddress(inf, field);
+        }
+
+        @Override
+        public String getName() {
+            return entry.name;
+        }
+
+        @Override
+        public LfsElementType getType() {
+            return LfsElementType.FILE;
+        }
+
+        @Override
+        public int getLoadAddress() {
+            return readInfAddress(1);
+        }
+
+        @Override
+        public int getExecAddress() {
+            return readInfAddress(2);
+        }
+
+        @Override
+        public int length() {
+            return (int) Math.min(65536L, Math.max(0L, entry.size));
+        }
+
+        @Override
+        public Optional<? extends LfsElement> getParent() {
+            return Optional.of(archive);
+        }
+
+        @Override
+        public List<? extends LfsElement> list() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return false;
+        }
+
+        @Override
+        public RandomAccessData getData() throws IOException {
+            return new ByteRandomAccessData(archive.readEntry(entry.path));
+        }
+    }
+
+    //
+    // A disc image within the archive. It isn't inflated until something inside it is wanted, so listing or
+    // changing into a large archive stays quick.
+    //
+    private static final class ImageElement implements LfsElement {
+
+        private final ZipArchive archive;
+        private final Entry entry;
+
+        ImageElement(final ZipArchive archive, final Entry entry) {
+            this.archive = archive;
+            this.entry = entry;
+        }
+
+        private DiskImage getImage() throws IOException {
+            return DiskImage.of(archive, archive.getKey() + "!" + entry.path, () -> archive.readEntry(entry.path));
+        }
+
+        @Override
+        public String getName() {
+            return entry.name;
+        }
+
+        @Override
+        public LfsElementType getType() {
+            return LfsElementType.IMAGE;
+        }
+
+        @Override
+        public int getLoadAddress() {
+            return 0;
+        }
+
+        @Override
+        public int getExecAddress() {
+            return 0;
+        }
+
+        @Override
+        public int length() {
+            return 0;
+        }
+
+        @Override
+        public Optional<? extends LfsElement> getParent() {
+            return Optional.of(archive);
+        }
+
+        @Override
+        public List<? extends LfsElement> list() {
+            try {
+                return getImage().list();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+                return Collections.emptyList();
+            }
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return true;
+        }
+
+        @Override
+        public RandomAccessData getData() throws IOException {
+            throw new IOException("Cannot open directory for read");
+        }
+    }
+}
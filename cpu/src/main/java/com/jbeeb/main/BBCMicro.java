@@ -2,6 +2,7 @@ package com.jbeeb.main;
 
 import com.jbeeb.assembler.Disassembler;
 import com.jbeeb.clock.Clock;
+import com.jbeeb.clock.ClockListener;
 import com.jbeeb.clock.ClockSpeed;
 import com.jbeeb.cpu.Cpu;
 import com.jbeeb.cpu.Flag;
@@ -11,10 +12,15 @@ import com.jbeeb.disk.FloppyDiskController;
 import com.jbeeb.localfs.FilingSystem;
 import com.jbeeb.localfs.LocalFilingSystem;
 import com.jbeeb.memory.*;
+import com.jbeeb.screen.HeadlessFrameSink;
 import com.jbeeb.screen.Screen;
+import com.jbeeb.screen.ScreenWindow;
+import com.jbeeb.screen.VideoCapture;
 import com.jbeeb.sound.SoundChip;
+import com.jbeeb.sound.WavSoundChip;
 import com.jbeeb.util.*;
 
+import java.awt.GraphicsEnvironment;
 import java.io.File;
 import java.util.*;
 import java.util.function.BooleanSupplier;
@@ -36,6 +42,15 @@ public final class BBCMicro implements InterruptSource {
 
     private static final boolean INSTALL_DFS = false;
 
+    // Set to a file name to record the screen as a .y4m video
+    private static final String CAPTURE_FILE_PROPERTY = "jbeeb.capture";
+
+    // Set to a file name to render the sound to a .wav file instead of the audio device
+    private static final String AUDIO_FILE_PROPERTY = "jbeeb.audio";
+
+    // Set to true to skip real disc timings when loading from the floppy disc controller
+    private static final String FAST_DISC_PROPERTY = "jbeeb.fastdisc";
+
     private static final File STATE_FILE = new File(System.getProperty("user.home"), "state.bbc");
     private static final String BASIC_ROM_RESOURCE_NAME = "/roms/BASIC2.rom";
     private static final String DFS_ROM_RESOURCE_NAME = "/roms/DFS-1.2.rom";
@@ -86,7 +101,14 @@ public final class BBCMicro implements InterruptSource {
                 SHEILA + 0x20
         );
 
-        this.soundChip = SystemVIA.createSoundChip();
+        final String audioFile = System.getProperty(AUDIO_FILE_PROPERTY);
+        if (audioFile != null) {
+            final WavSoundChip wavSoundChip = new WavSoundChip(new File(audioFile));
+            Runtime.getRuntime().addShutdownHook(new Thread(wavSoundChip::close));
+            this.soundChip = wavSoundChip;
+        } else {
+            this.soundChip = SystemVIA.createSoundChip(systemStatus);
+        }
 
         this.systemVIA = new SystemVIA(
                 systemStatus,
@@ -135,6 +157,7 @@ public final class BBCMicro implements InterruptSource {
         devices.add(new SheilaMemoryMappedDevice(systemStatus));
 
         if (fdc != null) {
+            fdc.setFastMode(Boolean.getBoolean(FAST_DISC_PROPERTY));
             fdc.load(0, new File(System.getProperty("user.home"), "Arcadians.ssd"));
             fdc.load(1, new File(System.getProperty("user.home"), "Arcadians.ssd"));
         }
@@ -159,15 +182,20 @@ public final class BBCMicro implements InterruptSource {
 
         final Screen screen = new Screen(
                 systemStatus,
-                this,
                 memory,
                 videoULA,
                 crtc6845,
                 systemVIA
         );
-        screen.addKeyDownListener(systemVIA::keyDown);
-        screen.addKeyUpListener(systemVIA::keyUp);
         crtc6845.addNewFrameListener(screen::newFrame);
+        crtc6845.addNewFrameListener(() -> soundChip.advanceTo(systemVIA.getCycleCount()));
+
+        final String captureFile = System.getProperty(CAPTURE_FILE_PROPERTY);
+        if (captureFile != null) {
+            final VideoCapture capture = new VideoCapture(systemStatus, new File(captureFile));
+            screen.addFrameListener(capture);
+            Runtime.getRuntime().addShutdownHook(new Thread(capture::close));
+        }
 
         this.cpu = new Cpu(systemStatus, scheduler, memory);
         filingSystemROM.initialise(cpu, memory);
@@ -177,11 +205,21 @@ public final class BBCMicro implements InterruptSource {
             this.fdc.setCpu(cpu);
         }
 
+        final List<ClockListener> clockListeners = new ArrayList<>(Arrays.asList(cpu, systemVIA, userVIA, crtc6845));
+        if (GraphicsEnvironment.isHeadless()) {
+            screen.addFrameListener(new HeadlessFrameSink(systemStatus));
+        } else {
+            final ScreenWindow screenWindow = new ScreenWindow(systemStatus, this, screen, systemVIA);
+            screenWindow.addKeyDownListener(systemVIA::keyDown);
+            screenWindow.addKeyUpListener(systemVIA::keyUp);
+            clockListeners.add(screenWindow);
+        }
+
         this.clock = new Clock(
                 systemStatus,
                 ClockSpeed.CR200,
                 Long.MAX_VALUE,
-                Arrays.asList(cpu, systemVIA, userVIA, crtc6845, screen)
+                clockListeners
         );
         addInterruptSource(crtc6845);
         addInterruptSource(systemVIA);
@@ -225,13 +263,10 @@ public final class BBCMicro implements InterruptSource {
         }), false);
     }
 
-    private State savedState;
-
     public void saveState() {
         cpu.setQuiescentCallback(() -> {
             try {
-                savedState = createState();
-                savedState.write(STATE_FILE);
+                Snapshot.capture(getStateComponents()).write(STATE_FILE);
             } catch (Exception ex) {
                 ex.printStackTrace();
             }
@@ -242,8 +277,7 @@ public final class BBCMicro implements InterruptSource {
         if (STATE_FILE.exists()) {
             cpu.setQuiescentCallback(() -> {
                 try {
-                    savedState = State.read(STATE_FILE);
-                    restoreState(savedState);
+                    Snapshot.restore(STATE_FILE, getStateComponents());
                 } catch (Exception ex) {
                     ex.printStackTrace();
                 }
@@ -251,26 +285,8 @@ public final class BBCMicro implements InterruptSource {
         }
     }
 
-    private State createState() throws Exception {
-        final State state = new State();
-        Util.populateState(state, videoULA);
-        Util.populateState(state, systemVIA);
-        Util.populateState(state, soundChip);
-        Util.populateState(state, userVIA);
-        Util.populateState(state, crtc6845);
-        Util.populateState(state, cpu);
-        Util.populateState(state, ram);
-        return state;
-    }
-
-    private void restoreState(final State state) throws Exception {
-        Util.applyState(state, videoULA);
-        Util.applyState(state, systemVIA);
-        Util.applyState(state, soundChip);
-        Util.applyState(state, userVIA);
-        Util.applyState(state, crtc6845);
-        Util.applyState(state, cpu);
-        Util.applyState(state, ram);
+    private Object[] getStateComponents() {
+        return new Object[]{videoULA, systemVIA, soundChip, userVIA, crtc6845, cpu, ram};
     }
 
     public void run(final BooleanSupplier haltCondition) {
@@ -68,6 +68,35 @@ public abstract class AbstractMemory implements Memory {
         }
     }
 
+    @Override
+    public void readBlock(int address, byte[] data, int offset, int length) {
+        if (length <= 0) {
+            return;
+        }
+        final int index = computeIndex(address);
+        computeIndex(address + length - 1);
+        for (int i = 0; i < length; i++) {
+            data[offset + i] = (byte) memory[index + i];
+        }
+    }
+
+    @Override
+    public void writeBlock(int address, byte[] data, int offset, int length) {
+        if (readOnly || length <= 0) {
+            return;
+        }
+        if (modifyWatches != null) {
+            // Watched addresses need to see each write
+            Memory.super.writeBlock(address, data, offset, length);
+            return;
+        }
+        final int index = computeIndex(address);
+        computeIndex(address + length - 1);
+        for (int i = 0; i < length; i++) {
+            memory[index + i] = data[offset + i] & 0xFF;
+        }
+    }
+
     private void writeByteUnsafe(final int address, final int value) {
         memory[computeIndex(address)] = value;
     }
@@ -98,6 +98,39 @@ public final class CompoundMemory implements Memory {
         getRegion(address).writeWord(address, value);
     }
 
+    //
+    // Block transfers are split into runs that fall within a single region and handed to that region
+    //
+    @Override
+    public void readBlock(int address, byte[] data, int offset, int length) {
+        int done = 0;
+        while (done < length) {
+            final Memory m = getRegion(address + done);
+            final int run = runLength(m, address + done, length - done);
+            m.readBlock(address + done, data, offset + done, run);
+            done += run;
+        }
+    }
+
+    @Override
+    public void writeBlock(int address, byte[] data, int offset, int length) {
+        int done = 0;
+        while (done < length) {
+            final Memory m = getRegion(address + done);
+            final int run = runLength(m, address + done, length - done);
+            m.writeBlock(address + done, data, offset + done, run);
+            done += run;
+        }
+    }
+
+    private int runLength(final Memory region, final int address, final int maxLength) {
+        int run = 1;
+        while (run < maxLength && address + run <= maxAddress && map[address + run] == region) {
+            run++;
+        }
+        return run;
+    }
+
     @Override
     public void installIntercept(int address, FetchIntercept intercept, boolean addRTS) {
         getRegion(address).installIntercept(address, intercept, addRTS);
@@ -3,6 +3,7 @@ package com.jbeeb.memory;
 import com.jbeeb.device.MemoryMappedDevice;
 import com.jbeeb.util.Util;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,6 +34,46 @@ public interface Memory {
         writeByte(address + 1, (word >>> 8) & 0xFF);
     }
 
+    //
+    // Block transfers. These go a byte at a time unless a region can do better - plain memory copies straight
+    // to and from its array, while devices see every access just as the CPU would make it.
+    //
+    default void readBlock(int address, byte[] data, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            data[offset + i] = (byte) readByte(address + i);
+        }
+    }
+
+    default void writeBlock(int address, byte[] data, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            writeByte(address + i, data[offset + i] & 0xFF);
+        }
+    }
+
+    default void readBlock(int address, ByteBuffer buffer) {
+        final int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            readBlock(address, buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            buffer.position(buffer.position() + length);
+        } else {
+            final byte[] data = new byte[length];
+            readBlock(address, data, 0, length);
+            buffer.put(data);
+        }
+    }
+
+    default void writeBlock(int address, ByteBuffer buffer) {
+        final int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            writeBlock(address, buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            buffer.position(buffer.position() + length);
+        } else {
+            final byte[] data = new byte[length];
+            buffer.get(data);
+            writeBlock(address, data, 0, length);
+        }
+    }
+
     static Memory randomAccessMemory(final int start, final int size) {
         return new RandomAccessMemory(start, size);
     }
@@ -0,0 +1,95 @@
+package com.jbeeb.screen;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+//
+// A frame of RGB pixels in a plain int[] - renderers write straight into the array and consumers that need
+// AWT can wrap the same array as a BufferedImage without copying
+//
+public final class FrameBuffer {
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+
+    private int originX;
+    private int originY;
+    private long frameNumber = -1L;
+    private Object contentOwner;
+
+    private BufferedImage image;
+
+    public FrameBuffer(final int width, final int height) {
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public void fill(final int rgb) {
+        Arrays.fill(pixels, rgb);
+    }
+
+    //
+    // Offset that centres the raster within the frame
+    //
+    public int getOriginX() {
+        return originX;
+    }
+
+    public int getOriginY() {
+        return originY;
+    }
+
+    public void setOrigin(final int originX, final int originY) {
+        this.originX = originX;
+        this.originY = originY;
+    }
+
+    // The emulated frame this buffer shows, or -1 until something has been rendered into it
+    public long getFrameNumber() {
+        return frameNumber;
+    }
+
+    void setFrameNumber(final long frameNumber) {
+        this.frameNumber = frameNumber;
+    }
+
+    //
+    // The renderer that last painted this buffer - lets a renderer tell whether the pixels it left behind are
+    // still there for it to paint over incrementally
+    //
+    public Object getContentOwner() {
+        return contentOwner;
+    }
+
+    public void setContentOwner(final Object contentOwner) {
+        this.contentOwner = contentOwner;
+    }
+
+    public BufferedImage getImage() {
+        if (image == null) {
+            final DirectColorModel colorModel = new DirectColorModel(24, 0xFF0000, 0x00FF00, 0x0000FF);
+            final DataBufferInt dataBuffer = new DataBufferInt(pixels, pixels.length);
+            final WritableRaster raster = Raster.createPackedRaster(dataBuffer, width, height, width, colorModel.getMasks(), null);
+            image = new BufferedImage(colorModel, raster, false, null);
+        }
+        return image;
+    }
+}
@@ -0,0 +1,85 @@
+package com.jbeeb.screen;
+
+import com.jbeeb.device.Crtc6845;
+import com.jbeeb.device.SystemVIA;
+import com.jbeeb.device.VideoRegisterLog;
+import com.jbeeb.device.VideoULA;
+import com.jbeeb.memory.Memory;
+
+import java.util.Objects;
+
+//
+// Runs on the emulation thread - latches the video state at the start of each frame and fills in a snapshot
+// of the finished frame at the next frame boundary
+//
+final class FrameRecorder {
+
+    private static final int TELETEXT_BASE_ADDRESS = 0x7C00;
+
+    private final Memory memory;
+    private final SystemVIA systemVIA;
+    private final Crtc6845 crtc6845;
+    private final VideoULA videoULA;
+    private final VideoRegisterLog registerLog;
+
+    private int frameNumber = -1;
+    private long emulatedFrameNumber;
+    private int baseAddress;
+    private boolean cursorBlinkOn;
+    private int videoControlRegister;
+    private final int[] palette = new int[16];
+    private final int[] crtcRegisters = new int[18];
+
+    FrameRecorder(final Memory memory, final SystemVIA systemVIA, final Crtc6845 crtc6845, final VideoULA videoULA) {
+        this.memory = Objects.requireNonNull(memory);
+        this.systemVIA = Objects.requireNonNull(systemVIA);
+        this.crtc6845 = Objects.requireNonNull(crtc6845);
+        this.videoULA = Objects.requireNonNull(videoULA);
+        this.registerLog = crtc6845.getRegisterLog();
+        videoULA.setRegisterLog(registerLog);
+    }
+
+    //
+    // Called from the CRTC new frame event, before the register log is reset. Returns false if there was no
+    // complete frame to snapshot.
+    //
+    boolean endFrame(final FrameSnapshot snapshot) {
+        final boolean complete = (frameNumber == registerLog.getFrameNumber());
+        if (complete) {
+            snapshot.frameNumber = emulatedFrameNumber;
+            snapshot.baseAddress = baseAddress;
+            snapshot.cursorBlinkOn = cursorBlinkOn;
+            snapshot.videoControlRegister = videoControlRegister;
+            snapshot.teletext = videoULA.isTeletext();
+            System.arraycopy(palette, 0, snapshot.getPalette(), 0, palette.length);
+            System.arraycopy(crtcRegisters, 0, snapshot.getCrtcRegisters(), 0, crtcRegisters.length);
+            snapshot.getRegisterLog().copyFrom(registerLog);
+            final int screenStart = getScreenLowAddress(snapshot.teletext);
+            memory.readBlock(screenStart, snapshot.getMemory(), screenStart, FrameSnapshot.MEMORY_SIZE - screenStart);
+        }
+        latchFrameStartState();
+        return complete;
+    }
+
+    //
+    // Only the screen is copied - from the lower of its base and the CRTC start address (as the renderers take
+    // it at the start of the frame) up to the top of memory, which is where the screen wraps from. Anything the
+    // renderers could read beyond that falls back to copying all of it.
+    //
+    private int getScreenLowAddress(final boolean teletext) {
+        final int crtcStart = Crtc6845.getScreenStartAddress(crtcRegisters);
+        final int start = teletext ? Crtc6845.toTeletextAddress(crtcStart) : crtcStart * 8;
+        final int base = teletext ? TELETEXT_BASE_ADDRESS : baseAddress;
+        return (start < FrameSnapshot.MEMORY_SIZE) ? Math.min(start, base) : 0;
+    }
+
+    private void latchFrameStartState() {
+        frameNumber = registerLog.getFrameNumber() + 1;
+        emulatedFrameNumber = crtc6845.getFrameNumber();
+        baseAddress = systemVIA.getScreenStartAddress();
+        cursorBlinkOn = crtc6845.isCursorOn();
+        videoControlRegister = videoULA.getVideoControlRegister();
+        videoULA.copyPalette(palette);
+        crtc6845.copyRegisters(crtcRegisters);
+    }
+}
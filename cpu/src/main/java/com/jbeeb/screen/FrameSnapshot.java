@@ -0,0 +1,65 @@
+package com.jbeeb.screen;
+
+import com.jbeeb.device.VideoRegisterLog;
+
+//
+// Everything needed to render one frame away from the emulation thread - the video state at the start of the
+// frame, the register writes made during it and the contents of screen memory at the end of it. Instances are
+// recycled by the frame handoff so they must not be held on to after rendering.
+//
+public final class FrameSnapshot {
+
+    public static final int MEMORY_SIZE = 0x8000;
+
+    private final byte[] memory = new byte[MEMORY_SIZE];
+    private final int[] palette = new int[16];
+    private final int[] crtcRegisters = new int[18];
+    private final VideoRegisterLog registerLog = new VideoRegisterLog();
+
+    long frameNumber;
+    int baseAddress;
+    boolean cursorBlinkOn;
+    int videoControlRegister;
+    boolean teletext;
+
+    byte[] getMemory() {
+        return memory;
+    }
+
+    VideoRegisterLog getRegisterLog() {
+        return registerLog;
+    }
+
+    public int readByte(final int address) {
+        return memory[address & (MEMORY_SIZE - 1)] & 0xFF;
+    }
+
+    // Frames since reset in emulated time, for anything that blinks or flashes
+    public long getFrameNumber() {
+        return frameNumber;
+    }
+
+    public int getBaseAddress() {
+        return baseAddress;
+    }
+
+    public boolean isCursorBlinkOn() {
+        return cursorBlinkOn;
+    }
+
+    public int getVideoControlRegister() {
+        return videoControlRegister;
+    }
+
+    public boolean isTeletext() {
+        return teletext;
+    }
+
+    public int[] getPalette() {
+        return palette;
+    }
+
+    public int[] getCrtcRegisters() {
+        return crtcRegisters;
+    }
+}
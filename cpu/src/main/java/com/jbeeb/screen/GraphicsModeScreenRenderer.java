@@ -1,227 +1,247 @@
 package com.jbeeb.screen;
 
-import com.jbeeb.clock.ClockSpeed;
 import com.jbeeb.device.Crtc6845;
-import com.jbeeb.device.SystemVIA;
+import com.jbeeb.device.VideoRegisterLog;
 import com.jbeeb.device.VideoULA;
-import com.jbeeb.memory.Memory;
 import com.jbeeb.util.Util;
 
 import java.awt.Color;
-import java.awt.Point;
-import java.awt.Rectangle;
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBuffer;
 import java.util.Objects;
 
+//
+// Renders a whole frame from a snapshot, replaying the cycle-stamped register log so that palette, mode and
+// CRTC changes made part way down the screen take effect at the right raster position
+//
 public class GraphicsModeScreenRenderer extends AbstractScreenRenderer {
 
-    private static final int CLOCK_RATE = ClockSpeed.TWO_MHZ;
+    private static final int PIXEL_HEIGHT = 2;
+    private static final int LINES_PER_CELL = 8;
 
-    private final Screen screen;
+    private final SystemPalette systemPalette;
+    private final PixelLookupTable lookupTable = new PixelLookupTable();
 
-    private long inputCycleCount = 0L;
-    private long myCycleCount = 0L;
-
-    private long myCyclesSinceSync = 0L;
-
-    private Rectangle cursorRect;
-
-    private int startAddress;
-    private int cursorAddress;
-    private boolean cursorOn;
+    //
+    // Video state while replaying - starts as it was at the start of the frame
+    //
     private int baseAddress;
+    private int videoControlRegister;
+    private final int[] palette = new int[16];
+    private final int[] crtcRegisters = new int[18];
 
     //
-    // Timings
+    // Derived from the video ULA state while replaying
     //
+    private int bitsPerPixel;
+    private int cyclesPerChar;
+    private int byteWidth;
+    private int[] pixels;
+
+    //
+    // Per-frame replay state
+    //
+    private FrameSnapshot snapshot;
+    private VideoRegisterLog registerLog;
+    private int[] data;
+    private int imageWidth;
     private int horizontalTotalChars;
     private int horizontalDisplayedChars;
-
-    private int verticalTotalChars;
-    private int verticalDisplayedChars;
-    private int verticalAdjust;
-
-    private boolean fastClock;
-
     private int scanLinesPerChar;
-    private int pixelsPerLine;
-    private int bitsPerPixel;
-    private int pixelsPerChar;
-    private int pixelWidth;
-    private int pixelHeight;
-
-    private int charPos = 0;
-    private int scanLine;
-    private int scanLineCount;
-
-    private long paintStart;
-    private int rasterWidth = -1;
-    private int rasterHeight = -1;
-
-    public GraphicsModeScreenRenderer(Screen screen, Memory memory, SystemVIA systemVIA, Crtc6845 crtc6845, VideoULA videoULA) {
-        super(memory, systemVIA, crtc6845, videoULA);
-        this.screen = Objects.requireNonNull(screen);
+    private int startAddress;
+    private int cursorAddress;
+    private boolean cursorOn;
+    private int logIndex;
+    private int logSize;
+    private long nextWriteCycle;
+    private int rasterLine;
+    private long rasterCycle;
+    private int rasterWidth;
+    private int cursorX;
+    private int cursorY;
+    private int cursorWidth;
+
+    public GraphicsModeScreenRenderer(final SystemPalette systemPalette) {
+        this.systemPalette = Objects.requireNonNull(systemPalette);
     }
 
     @Override
-    public void newFrame() {
-
-        startAddress = crtc6845.getScreenStartAddress() * 8;
-        baseAddress = systemVIA.getScreenStartAddress();
-        cursorAddress = wrapAddress(baseAddress, crtc6845.getCursorAddress() * 8);
-        cursorOn = crtc6845.isCursorOn() && videoULA.isCursorEnabled() && crtc6845.isCursorEnabled();
-
-        horizontalTotalChars = crtc6845.getHorizontalTotalChars();
-        horizontalDisplayedChars = crtc6845.getHorizontalDisplayedChars();
-        verticalTotalChars = crtc6845.getVerticalTotalChars();
-        verticalDisplayedChars = crtc6845.getVerticalDisplayedChars();
-        verticalAdjust = crtc6845.getVerticalAdjust();
-
-        scanLinesPerChar = crtc6845.getScanlinesPerCharacter();
-        scanLineCount = verticalDisplayedChars * 8;
-
-        pixelsPerChar = videoULA.getPixelsPerCharacter();
-        pixelsPerLine = horizontalDisplayedChars * pixelsPerChar;
-        bitsPerPixel = videoULA.getBitsPerPixel();
-        fastClock = videoULA.isFastClockRate();
-        pixelWidth = bitsPerPixel * (fastClock ? 1 : 2);
-
-        pixelHeight = 2;
+    public void render(final FrameSnapshot snapshot, final FrameBuffer frameBuffer) {
+        this.snapshot = snapshot;
+        this.registerLog = snapshot.getRegisterLog();
+        baseAddress = snapshot.getBaseAddress();
+        videoControlRegister = snapshot.getVideoControlRegister();
+        System.arraycopy(snapshot.getPalette(), 0, palette, 0, palette.length);
+        System.arraycopy(snapshot.getCrtcRegisters(), 0, crtcRegisters, 0, crtcRegisters.length);
+
+        renderFrame(frameBuffer);
+        this.snapshot = null;
+        this.registerLog = null;
+    }
 
-        myCyclesSinceSync = 0L;
-        charPos = 0;
-        scanLine = 0;
-        cursorRect = null;
+    private void renderFrame(final FrameBuffer frameBuffer) {
+        data = frameBuffer.getPixels();
+        frameBuffer.setContentOwner(this);
+        imageWidth = frameBuffer.getWidth();
+        final int imageHeight = frameBuffer.getHeight();
+
+        // Layout is taken from the start of the frame - the CRTC only latches these once per frame
+        startAddress = Crtc6845.getScreenStartAddress(crtcRegisters) * 8;
+        cursorAddress = wrapAddress(baseAddress, Crtc6845.getCursorAddress(crtcRegisters) * 8);
+        cursorOn = snapshot.isCursorBlinkOn() && VideoULA.isCursorEnabled(videoControlRegister) && Crtc6845.isCursorEnabled(crtcRegisters);
+        horizontalTotalChars = Crtc6845.getHorizontalTotalChars(crtcRegisters);
+        horizontalDisplayedChars = Crtc6845.getHorizontalDisplayedChars(crtcRegisters);
+        scanLinesPerChar = Crtc6845.getScanlinesPerCharacter(crtcRegisters);
+        final int verticalDisplayedChars = Crtc6845.getVerticalDisplayedChars(crtcRegisters);
+
+        logSize = registerLog.size();
+        logIndex = 0;
+        nextWriteCycle = (logSize > 0) ? registerLog.getFrameCycle(0) : Long.MAX_VALUE;
+        rasterLine = 0;
+        rasterCycle = 0L;
+
+        videoControlRegisterChanged();
 
         rasterWidth = -1;
-        rasterHeight = -1;
-    }
-
-    @Override
-    public boolean isClockBased() {
-        return true;
-    }
+        int rasterHeight = -1;
+        cursorX = -1;
+        cursorY = -1;
+        cursorWidth = 0;
+
+        for (int charRow = 0; charRow < verticalDisplayedChars; charRow++) {
+            final int firstScanLine = charRow * LINES_PER_CELL;
+            final int py = computeCharY(firstScanLine, scanLinesPerChar, PIXEL_HEIGHT);
+            if (py + LINES_PER_CELL * PIXEL_HEIGHT > imageHeight) {
+                break;
+            }
+            for (int line = 0; line < LINES_PER_CELL; line++) {
+                paintScanLine(firstScanLine + line, py + line * PIXEL_HEIGHT);
+            }
+            rasterHeight = py + LINES_PER_CELL * PIXEL_HEIGHT;
+        }
 
-    @Override
-    public void tick(final BufferedImage image, final ClockSpeed clockSpeed, final long elapsedNanos) {
-        final int cycles = clockSpeed.computeElapsedCycles(CLOCK_RATE, inputCycleCount, myCycleCount, elapsedNanos);
-        inputCycleCount++;
-        myCycleCount += cycles;
-        if (cycles <= 0) {
-            // Nothing to do yet
-            return;
+        // Writes made after the last displayed character still apply to the cursor
+        while (logIndex < logSize) {
+            applyWrite(logIndex++);
         }
 
-        for (int i = 0; i < cycles; i++) {
-            if (fastClock || ((myCyclesSinceSync & 1) == 0)) {
-                if ((myCyclesSinceSync % horizontalTotalChars) < horizontalDisplayedChars) {
-                    try {
-                        paintNextCharacter(image);
-                    } catch (Exception ex) {
-                        // TODO: Avoid having to catch this
-                        // Deliberately ignored
-                    }
-                }
+        if (cursorX >= 0) {
+            final int cursorStart = Crtc6845.getCursorStartLine(crtcRegisters);
+            final int cursorHeight = (Crtc6845.getCursorEndLine(crtcRegisters) - cursorStart) * PIXEL_HEIGHT;
+            if (cursorHeight > 0 && cursorY + (cursorStart * PIXEL_HEIGHT) + cursorHeight <= imageHeight) {
+                Util.fillRectXOR(data, Color.WHITE.getRGB(),
+                        cursorX,
+                        cursorY + cursorStart * PIXEL_HEIGHT,
+                        cursorWidth,
+                        cursorHeight,
+                        imageWidth
+                );
             }
-            myCyclesSinceSync++;
         }
-    }
-
-    @Override
-    public boolean isImageReady() {
-        return scanLine >= scanLineCount;
-    }
 
-    private void paintNextCharacter(final BufferedImage img) {
+        data = null;
 
-        // TODO: Only fetch these after a material change in Videa ULA
-        pixelsPerChar = videoULA.getPixelsPerCharacter();
-        pixelsPerLine = horizontalDisplayedChars * pixelsPerChar;
-        bitsPerPixel = videoULA.getBitsPerPixel();
-        fastClock = videoULA.isFastClockRate();
-        pixelWidth = bitsPerPixel * (fastClock ? 1 : 2);
-
-        final DataBuffer dataBuffer = img.getWritableTile(0, 0).getDataBuffer();
-        final int imageWidth = img.getWidth();
-
-        if (scanLine >= scanLineCount) {
-            return;
-        }
+        final int ox = Math.max(0, (imageWidth - rasterWidth) / 2);
+        final int oy = Math.max(0, (imageHeight - rasterHeight) / 2);
+        frameBuffer.setOrigin(ox, oy);
+    }
 
-        if (scanLine == 0 && charPos == 0) {
-            cursorRect = null;
-            paintStart = System.nanoTime();
-        }
+    private void paintScanLine(final int scanLine, final int py) {
+        // Character rows of more than 8 lines have blank lines that still take up raster time
+        final int line = (scanLine >>> 3) * scanLinesPerChar + (scanLine & 0x7);
+        advanceRaster((line - rasterLine) * horizontalTotalChars);
 
-        final int byteWidth = pixelsPerChar * pixelWidth;
         final int scanLineAddress = startAddress + ((scanLine >>> 3) * horizontalDisplayedChars * 8) + (scanLine & 0x7);
-
-        final int address = wrapAddress(baseAddress, scanLineAddress + (charPos << 3));
-        final int v = memory.readByte(address);
-        final int x = charPos * byteWidth;
-        int px = x;
-        int py = computeCharY(scanLine, scanLinesPerChar, pixelHeight);
-        for (int b = 0; b < pixelsPerChar; b++) {
-            final int rgb = videoULA.getPhysicalColor(v, b, bitsPerPixel).getRGB() & 0xFFFFFF;
-            Util.fillRect(dataBuffer, rgb, px, py, pixelWidth, pixelHeight, imageWidth);
-            px += pixelWidth;
+        final int rowOffset = py * imageWidth;
+        int px = 0;
+        for (int charPos = 0; charPos < horizontalDisplayedChars; charPos++) {
+            applyWritesUpTo(rasterCycle);
+            rasterCycle += cyclesPerChar;
+
+            // Characters beyond the edge of the image still take up raster time
+            if (px + byteWidth > imageWidth) {
+                continue;
+            }
+            final int address = wrapAddress(baseAddress, scanLineAddress + (charPos << 3));
+            final int v = snapshot.readByte(address);
+            System.arraycopy(pixels, v * byteWidth, data, rowOffset + px, byteWidth);
+
+            if (cursorOn && cursorX < 0 && address == cursorAddress) {
+                cursorX = px;
+                cursorY = computeCharY(scanLine & 0xf8, scanLinesPerChar, PIXEL_HEIGHT);
+                cursorWidth = byteWidth * bitsPerPixel;
+            }
+            px += byteWidth;
         }
+        advanceRaster(horizontalTotalChars - horizontalDisplayedChars);
+        rasterLine = line + 1;
 
-        final int maxY = py + pixelHeight;
-        if (px > rasterWidth) {
-            rasterWidth = px;
-        }
-        if (maxY > rasterHeight) {
-            rasterHeight = maxY;
+        // Each scanline is two pixels high
+        for (int row = 1; row < PIXEL_HEIGHT; row++) {
+            System.arraycopy(data, rowOffset, data, rowOffset + row * imageWidth, px);
         }
+        rasterWidth = Math.max(rasterWidth, px);
+    }
 
-        if (cursorOn && cursorRect == null && address == cursorAddress) {
-            final int cx = x;
-            final int cy = computeCharY(scanLine & 0xf8, scanLinesPerChar, pixelHeight);
-            cursorRect = new Rectangle(cx, cy, byteWidth * bitsPerPixel, pixelHeight * scanLinesPerChar);
+    //
+    // Moves the raster on by a number of character times. The cycles are added up as they go rather than
+    // worked out from the line number, so that a change of clock rate part way down the screen only affects
+    // the time from where it was made.
+    //
+    private void advanceRaster(int chars) {
+        while (chars > 0) {
+            applyWritesUpTo(rasterCycle);
+            if (nextWriteCycle > rasterCycle + (long) chars * cyclesPerChar) {
+                rasterCycle += (long) chars * cyclesPerChar;
+                return;
+            }
+            rasterCycle += cyclesPerChar;
+            chars--;
         }
+    }
 
-        charPos++;
-        if (charPos == horizontalDisplayedChars) {
-            charPos = 0;
-            scanLine++;
+    private void applyWritesUpTo(final long cycle) {
+        while (nextWriteCycle <= cycle) {
+            applyWrite(logIndex++);
+            nextWriteCycle = (logIndex < logSize) ? registerLog.getFrameCycle(logIndex) : Long.MAX_VALUE;
         }
-        if (scanLine >= scanLineCount) {
-            final int ox = Math.max(0, (imageWidth - rasterWidth) / 2);
-            final int oy = Math.max(0, (img.getHeight() - rasterHeight) / 2);
-            if (cursorRect != null) {
-                final int cursorStart = crtc6845.getCursorStartLine();;
-                final int cursorHeight = (crtc6845.getCursorEndLine() - cursorStart) * pixelHeight;
-                if (cursorHeight > 0) {
-                    Util.fillRectXOR(dataBuffer, Color.WHITE.getRGB(),
-                            cursorRect.x,
-                            cursorRect.y + cursorStart * pixelHeight,
-                            cursorRect.width,
-                            cursorHeight,
-                            imageWidth
-                    );
-                }
-                cursorRect = null;
+    }
+
+    private void applyWrite(final int index) {
+        final int register = registerLog.getRegister(index);
+        final int value = registerLog.getValue(index);
+        if (registerLog.getSource(index) == VideoRegisterLog.SOURCE_VIDEO_ULA) {
+            if (register == 0) {
+                videoControlRegister = value;
+                videoControlRegisterChanged();
+            } else {
+                VideoULA.writePalette(palette, value);
+                refreshPixels();
             }
-            final Point origin = new Point(ox, oy);
-            screen.imageReady(origin, System.nanoTime() - paintStart);
+        } else if (register < crtcRegisters.length) {
+            // Layout registers are latched at the start of the frame so only the cursor shape changes mid-frame
+            crtcRegisters[register] = value;
         }
     }
 
+    private void videoControlRegisterChanged() {
+        bitsPerPixel = VideoULA.getBitsPerPixel(videoControlRegister);
+        cyclesPerChar = VideoULA.isFastClockRate(videoControlRegister) ? 1 : 2;
+        refreshPixels();
+    }
+
+    private void refreshPixels() {
+        pixels = lookupTable.lookup(systemPalette, palette, videoControlRegister);
+        byteWidth = lookupTable.getByteWidth();
+    }
+
     private static int computeCharY(final int scanLine, final int scanLinesPerChar, final int pixelHeight) {
         return ((scanLine >>> 3) * scanLinesPerChar * pixelHeight) + ((scanLine & 0x7) * pixelHeight);
     }
 
-    private static int wrapAddress(final int baseAddress, int address) {
-        if (address >= 0x8000) {
-            address -= (0x8000 - baseAddress);
+    // Addresses past the end of screen memory wrap back to its start, however far past the end they are
+    private static int wrapAddress(final int baseAddress, final int address) {
+        if (address < 0x8000 || baseAddress >= 0x8000) {
+            return address;
         }
-        return address;
-    }
-
-    @Override
-    public void refreshWholeImage(final BufferedImage img) {
-        throw new UnsupportedOperationException();
+        return baseAddress + (address - 0x8000) % (0x8000 - baseAddress);
     }
 }
@@ -0,0 +1,37 @@
+package com.jbeeb.screen;
+
+import com.jbeeb.util.SystemStatus;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+//
+// Frame consumer for running without a display - keeps the frame rate in the system status and nothing else
+//
+public final class HeadlessFrameSink implements Consumer<FrameBuffer> {
+
+    private static final int STATUS_UPDATE_FRAMES = 50;
+
+    private final SystemStatus systemStatus;
+
+    private long firstFrameTime = -1L;
+    private int frameCount;
+
+    public HeadlessFrameSink(final SystemStatus systemStatus) {
+        this.systemStatus = Objects.requireNonNull(systemStatus);
+    }
+
+    @Override
+    public void accept(final FrameBuffer frameBuffer) {
+        if (firstFrameTime < 0L) {
+            firstFrameTime = System.nanoTime();
+        }
+        frameCount++;
+        if (frameCount == STATUS_UPDATE_FRAMES) {
+            final double secs = (System.nanoTime() - firstFrameTime) / 1_000_000_000.0;
+            systemStatus.putDouble(SystemStatus.KEY_FRAMES_RENDERED_PER_SECOND, frameCount / secs);
+            firstFrameTime = System.nanoTime();
+            frameCount = 0;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.jbeeb.screen;
+
+import com.jbeeb.device.VideoULA;
+import com.jbeeb.util.LruCache;
+
+import java.util.Arrays;
+
+//
+// Maps each screen byte to the run of RGB pixels it produces for the current video ULA state. Both flash
+// phases are built together so that flashing colours do not cause a rebuild.
+//
+// The tables for the last few mode and palette combinations are kept, so that a program which switches palette
+// part way down the screen every frame doesn't rebuild them twice a frame.
+//
+final class PixelLookupTable {
+
+    private static final int MAX_TABLES = 8;
+
+    private final LruCache<Key, Tables> tables = new LruCache<>(MAX_TABLES);
+
+    private SystemPalette builtSystemPalette;
+    private Tables current;
+
+    int getByteWidth() {
+        return current.byteWidth;
+    }
+
+    int[] lookup(final SystemPalette systemPalette, final int[] palette, final int videoControlRegister) {
+        final int control = videoControlRegister & 0xFE;
+        final long packedPalette = pack(palette);
+        if (systemPalette != builtSystemPalette) {
+            tables.clear();
+            current = null;
+            builtSystemPalette = systemPalette;
+        }
+        if (current == null || current.key.control != control || current.key.palette != packedPalette) {
+            final Key key = new Key(control, packedPalette);
+            Tables t = tables.get(key);
+            if (t == null) {
+                t = build(systemPalette, palette, key);
+                tables.put(key, t);
+            }
+            current = t;
+        }
+        return current.pixels[VideoULA.getSelectedFlashIndex(videoControlRegister)];
+    }
+
+    // Physical colours are only 4 bits so the whole palette fits in a long
+    private static long pack(final int[] palette) {
+        long packed = 0L;
+        for (int i = 0; i < 16; i++) {
+            packed = (packed << 4) | (palette[i] & 0x0F);
+        }
+        return packed;
+    }
+
+    private static Tables build(final SystemPalette systemPalette, final int[] palette, final Key key) {
+        final int control = key.control;
+        final int bitsPerPixel = VideoULA.getBitsPerPixel(control);
+        final int pixelsPerChar = VideoULA.getPixelsPerCharacter(control);
+        final int pixelWidth = bitsPerPixel * (VideoULA.isFastClockRate(control) ? 1 : 2);
+        final int byteWidth = pixelsPerChar * pixelWidth;
+
+        final int[][] pixels = new int[2][];
+        for (int phase = 0; phase < 2; phase++) {
+            final int[] table = new int[256 * byteWidth];
+            for (int v = 0; v < 256; v++) {
+                int i = v * byteWidth;
+                for (int b = 0; b < pixelsPerChar; b++) {
+                    final int rgb = VideoULA.getPhysicalColor(systemPalette, palette, control | phase, v, b, bitsPerPixel).getRGB() & 0xFFFFFF;
+                    Arrays.fill(table, i, i + pixelWidth, rgb);
+                    i += pixelWidth;
+                }
+            }
+            pixels[phase] = table;
+        }
+        return new Tables(key, pixels, byteWidth);
+    }
+
+    private static final class Key {
+        final int control;
+        final long palette;
+
+        Key(final int control, final long palette) {
+            this.control = control;
+            this.palette = palette;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return control == other.control && palette == other.palette;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * control + Long.hashCode(palette);
+        }
+    }
+
+    private static final class Tables {
+        final Key key;
+        final int[][] pixels;
+        final int byteWidth;
+
+        Tables(final Key key, final int[][] pixels, final int byteWidth) {
+            this.key = key;
+            this.pixels = pixels;
+            this.byteWidth = byteWidth;
+        }
+    }
+}
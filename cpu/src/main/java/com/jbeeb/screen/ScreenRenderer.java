@@ -1,15 +1,7 @@
 package com.jbeeb.screen;
 
-import com.jbeeb.clock.ClockSpeed;
-
-import java.awt.image.BufferedImage;
-
 public interface ScreenRenderer {
 
-    boolean isClockBased();
-    void tick(BufferedImage image, ClockSpeed clockSpeed, long elapsedNanos);
-    void newFrame();
-
-    void refreshWholeImage(BufferedImage image);
-    boolean isImageReady();
+    // Paints the whole frame and sets the origin that centres the raster in the frame buffer
+    void render(FrameSnapshot snapshot, FrameBuffer frameBuffer);
 }
@@ -0,0 +1,161 @@
+package com.jbeeb.screen;
+
+import com.jbeeb.util.SystemStatus;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+//
+// Records completed frames to an uncompressed YUV4MPEG2 (4:4:4) file. Frames are copied into pooled buffers
+// on the render thread and encoded on a background thread - if the encoder falls behind, frames are dropped
+// and counted rather than holding anything up.
+//
+// Frames can also go missing before they get here, when the emulator finishes a frame before the last one has
+// been rendered. Both kinds of gap are found from the emulated frame numbers and filled by repeating the frame
+// before, so the file keeps to the 50 frames a second its header promises.
+//
+public final class VideoCapture implements Consumer<FrameBuffer> {
+
+    private static final int POOL_SIZE = 8;
+    private static final byte[] FRAME_HEADER = "FRAME\n".getBytes(StandardCharsets.US_ASCII);
+    private static final int FRAMES_PER_SECOND = 50;
+
+    // Longer gaps, such as after a saved state has been restored, aren't filled
+    private static final long MAX_REPEATS = FRAMES_PER_SECOND;
+
+    private final SystemStatus systemStatus;
+    private final File file;
+    private final BlockingQueue<int[]> freeBuffers = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final BlockingQueue<PendingFrame> pendingFrames = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final Thread encoderThread;
+
+    private volatile boolean closed;
+    private volatile int width;
+    private volatile int height;
+    private int allocatedBuffers;
+    private long droppedFrames;
+    private long lastFrameNumber = -1L;
+    private long repeats;
+
+    public VideoCapture(final SystemStatus systemStatus, final File file) {
+        this.systemStatus = Objects.requireNonNull(systemStatus);
+        this.file = Objects.requireNonNull(file);
+        this.encoderThread = new Thread(this::encodeFrames, "video-capture");
+        this.encoderThread.setDaemon(true);
+        this.encoderThread.start();
+    }
+
+    @Override
+    public void accept(final FrameBuffer frameBuffer) {
+        if (closed) {
+            return;
+        }
+        if (width == 0) {
+            width = frameBuffer.getWidth();
+            height = frameBuffer.getHeight();
+        }
+        final long frameNumber = frameBuffer.getFrameNumber();
+        if (lastFrameNumber >= 0L && frameNumber > lastFrameNumber + 1) {
+            frameDropped(frameNumber - lastFrameNumber - 1);
+        }
+        lastFrameNumber = frameNumber;
+
+        final int[] pixels = frameBuffer.getPixels();
+        int[] buffer = freeBuffers.poll();
+        if (buffer == null && allocatedBuffers < POOL_SIZE) {
+            buffer = new int[pixels.length];
+            allocatedBuffers++;
+        }
+        if (buffer == null || buffer.length != pixels.length) {
+            frameDropped(1L);
+            return;
+        }
+        System.arraycopy(pixels, 0, buffer, 0, pixels.length);
+        pendingFrames.offer(new PendingFrame(buffer, (int) Math.min(repeats, MAX_REPEATS)));
+        repeats = 0L;
+    }
+
+    private void frameDropped(final long count) {
+        droppedFrames += count;
+        repeats += count;
+        systemStatus.putLong(SystemStatus.KEY_CAPTURE_DROPPED_FRAMES, droppedFrames);
+    }
+
+    public void close() {
+        closed = true;
+        try {
+            encoderThread.join(5000L);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void encodeFrames() {
+        byte[] planes = null;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 20)) {
+            while (true) {
+                final PendingFrame frame = pendingFrames.poll(100L, TimeUnit.MILLISECONDS);
+                if (frame == null) {
+                    if (closed) {
+                        break;
+                    }
+                    continue;
+                }
+                if (planes == null) {
+                    out.write(("YUV4MPEG2 W" + width + " H" + height + " F" + FRAMES_PER_SECOND + ":1 Ip A1:1 C444\n").getBytes(StandardCharsets.US_ASCII));
+                    planes = new byte[frame.pixels.length * 3];
+                } else {
+                    // Planes still hold the previous frame
+                    for (int i = 0; i < frame.repeatsBefore; i++) {
+                        out.write(FRAME_HEADER);
+                        out.write(planes);
+                    }
+                }
+                toYCbCr(frame.pixels, planes);
+                freeBuffers.offer(frame.pixels);
+                out.write(FRAME_HEADER);
+                out.write(planes);
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        closed = true;
+    }
+
+    private static final class PendingFrame {
+        final int[] pixels;
+        final int repeatsBefore;
+
+        PendingFrame(final int[] pixels, final int repeatsBefore) {
+            this.pixels = pixels;
+            this.repeatsBefore = repeatsBefore;
+        }
+    }
+
+    //
+    // BT.601 studio range, one plane after another
+    //
+    private static void toYCbCr(final int[] rgb, final byte[] planes) {
+        final int size = rgb.length;
+        for (int i = 0; i < size; i++) {
+            final int p = rgb[i];
+            final int r = (p >>> 16) & 0xFF;
+            final int g = (p >>> 8) & 0xFF;
+            final int b = p & 0xFF;
+            planes[i] = (byte) (((66 * r + 129 * g + 25 * b + 128) >> 8) + 16);
+            planes[size + i] = (byte) (((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128);
+            planes[size * 2 + i] = (byte) (((112 * r - 94 * g - 18 * b + 128) >> 8) + 128);
+        }
+    }
+}
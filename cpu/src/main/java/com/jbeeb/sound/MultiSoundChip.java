@@ -5,31 +5,43 @@ package com.jbeeb.sound;
 //
 
 import com.jbeeb.util.StateKey;
+import com.jbeeb.util.SystemStatus;
 
 @StateKey(key = "soundChip")
 public final class MultiSoundChip implements SoundChip {
 
+    private static final int EVENT_QUEUE_SIZE = 4096;
+
     @StateKey(key = "register")
     private final int[] register = new int[4];
 
     @StateKey(key = "latchedRegister")
     private int latchedRegister;
 
-    private final NoiseGenerator noiseGenerator = new NoiseGenerator();
-    private final MultiSoundChannel soundChannel;
+    private final SoundEventQueue events = new SoundEventQueue(EVENT_QUEUE_SIZE);
+    private final SoundLine soundLine;
 
-    public MultiSoundChip() throws Exception {
-        final WaveGenerator[] waveGenerators = new WaveGenerator[4];
-        for (int i = 0; i < 3; i++) {
-            waveGenerators[i] = new SquareWaveGenerator(20);
-        }
-        waveGenerators[3] = noiseGenerator;
-        this.soundChannel = new MultiSoundChannel(waveGenerators);
-        this.soundChannel.start();
+    public MultiSoundChip(final SystemStatus systemStatus) throws Exception {
+        this.soundLine = new SoundLine(systemStatus, new Sn76489(SoundLine.SAMPLE_RATE), events);
+        this.soundLine.start();
+    }
+
+    @Override
+    public void accept(final long cycle, final int value) {
+        updateRegisters(value);
+        // Dropped if the audio thread has stopped taking events, in which case nobody would hear it anyway
+        events.offer(cycle, value);
     }
 
     @Override
-    public void accept(final int value) {
+    public void advanceTo(final long cycle) {
+        events.publish(cycle);
+    }
+
+    //
+    // Only kept for the saved state - the synth decodes writes for itself
+    //
+    private void updateRegisters(final int value) {
         int command;
         int channel;
         if ((value & 0x80) != 0) {
@@ -42,33 +54,23 @@ public final class MultiSoundChip implements SoundChip {
         channel = ((command >>> 5) & 0x03);
 
         if ((command & 0x10) != 0) {
-            // Volume
-            int newVolume = 15 - (value & 0xF);
-            final double vol = newVolume / 15.0;
-            soundChannel.setVolume(channel, vol);
-        } else if ((command & 0x80) != 0) {
+            // Volume is not part of the saved state
+            return;
+        }
+
+        if ((command & 0x80) != 0) {
             if (channel == 3) {
                 register[channel] = value & 0x7;
-                noiseGenerator.setNoiseTypeIndex(register[channel]);
             } else {
                 register[channel] = (register[channel] & ~0x0f) | (value & 0x0f);
             }
         } else {
             register[channel] = (register[channel] & 0x0f) | ((value & 0x3f) << 4);
-            soundChannel.setFrequency(channel, (int) freq(register[channel]));
-            if (channel == 2) {
-                // Set the noise generator's period from Channel 1
-                soundChannel.setPeriod(3, register[2] / 2);
-            }
         }
     }
 
     @Override
     public void setPaused(boolean paused) {
-        soundChannel.setPaused(paused);
-    }
-
-    private static double freq(final int freq) {
-        return (4_000_000.0 / 32.0) / freq;
+        soundLine.setPaused(paused);
     }
 }
@@ -1,11 +1,9 @@
 package com.jbeeb.sound;
 
-import java.util.function.IntConsumer;
-
 public final class NopSoundChip implements SoundChip {
 
     @Override
-    public void accept(int value) {
+    public void accept(long cycle, int value) {
         // Do nothing
     }
 
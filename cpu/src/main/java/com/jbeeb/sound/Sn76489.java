@@ -0,0 +1,130 @@
+package com.jbeeb.sound;
+
+import java.util.Arrays;
+
+//
+// Integer synthesis of the SN76489's three tone channels and noise channel, mixed into a single stream of 16 bit
+// signed little endian samples. Counters are kept in 16.16 fixed point chip ticks so a whole block is rendered
+// with nothing but integer arithmetic.
+//
+final class Sn76489 {
+
+    // The tone and noise counters are clocked at 4Mhz / 16
+    static final int CHIP_CLOCK = 250_000;
+
+    private static final int MAX_AMPLITUDE = 4096;
+    private static final int NOISE_CHANNEL = 3;
+    private static final int LFSR_RESET = 1 << 14;
+
+    //
+    // Each step of attenuation is 2dB, with the last step being silence
+    //
+    private static final int[] AMPLITUDES = new int[16];
+    static {
+        for (int i = 0; i < 15; i++) {
+            AMPLITUDES[i] = (int) Math.round(MAX_AMPLITUDE * Math.pow(10.0, -i / 10.0));
+        }
+        AMPLITUDES[15] = 0;
+    }
+
+    private final int[] periods = new int[3];
+    private final int[] counters = new int[4];
+    private final int[] outputs = {1, 1, 1, 1};
+    private final int[] amplitudes = {0, 0, 0, 0};
+
+    private int latchedRegister;
+    private int noiseControl;
+    private int lfsr = LFSR_RESET;
+
+    // Chip ticks per output sample, 16.16 fixed point
+    private int step;
+
+    Sn76489(final int sampleRate) {
+        setSampleRate(sampleRate);
+    }
+
+    void setSampleRate(final double sampleRate) {
+        this.step = (int) Math.round((CHIP_CLOCK * 65536.0) / sampleRate);
+    }
+
+    void write(final int value) {
+        if ((value & 0x80) != 0) {
+            latchedRegister = (value >>> 4) & 0x7;
+        }
+        final int channel = latchedRegister >>> 1;
+        if ((latchedRegister & 1) != 0) {
+            amplitudes[channel] = AMPLITUDES[value & 0xF];
+        } else if (channel == NOISE_CHANNEL) {
+            noiseControl = value & 0x7;
+            lfsr = LFSR_RESET;
+        } else if ((value & 0x80) != 0) {
+            periods[channel] = (periods[channel] & 0x3F0) | (value & 0x0F);
+        } else {
+            periods[channel] = (periods[channel] & 0x00F) | ((value & 0x3F) << 4);
+        }
+    }
+
+    void renderSilence(final byte[] pcm, final int offset, final int samples) {
+        Arrays.fill(pcm, offset, offset + samples * 2, (byte) 0);
+    }
+
+    void render(final byte[] pcm, int offset, final int samples) {
+        for (int i = 0; i < samples; i++) {
+            int mix = 0;
+            for (int c = 0; c < 3; c++) {
+                // A period of zero counts the full 1024
+                final int period = (periods[c] == 0) ? 1024 : periods[c];
+                if (period == 1) {
+                    // Too high to hear - the output is held high, which is how sampled sound is played
+                    mix += amplitudes[c];
+                    continue;
+                }
+                int counter = counters[c] - step;
+                while (counter <= 0) {
+                    counter += period << 16;
+                    outputs[c] = -outputs[c];
+                }
+                counters[c] = counter;
+                mix += outputs[c] * amplitudes[c];
+            }
+            mix += nextNoise() * amplitudes[NOISE_CHANNEL];
+
+            pcm[offset++] = (byte) mix;
+            pcm[offset++] = (byte) (mix >> 8);
+        }
+    }
+
+    private int nextNoise() {
+        int counter = counters[NOISE_CHANNEL] - step;
+        while (counter <= 0) {
+            counter += getNoisePeriod() << 16;
+            outputs[NOISE_CHANNEL] = -outputs[NOISE_CHANNEL];
+            if (outputs[NOISE_CHANNEL] > 0) {
+                lfsr = shiftNoise(lfsr);
+            }
+        }
+        counters[NOISE_CHANNEL] = counter;
+        return ((lfsr & 1) != 0) ? 1 : -1;
+    }
+
+    private int getNoisePeriod() {
+        final int rate = noiseControl & 0x3;
+        // Rate 3 takes its period from tone channel 2
+        if (rate == 3) {
+            return (periods[2] == 0) ? 1024 : periods[2];
+        }
+        return 0x10 << rate;
+    }
+
+    private int shiftNoise(final int lfsr) {
+        if ((noiseControl & 0x4) != 0) {
+            // White noise
+            final int bit = (lfsr & 1) ^ ((lfsr >>> 1) & 1);
+            return (lfsr >>> 1) | (bit << 14);
+        } else {
+            // Periodic noise
+            final int shifted = lfsr >>> 1;
+            return (shifted == 0) ? LFSR_RESET : shifted;
+        }
+    }
+}
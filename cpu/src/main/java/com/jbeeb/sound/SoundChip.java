@@ -1,8 +1,15 @@
 package com.jbeeb.sound;
 
-import com.jbeeb.util.StateKey;
-
+//
+// Cycles are those of the 2Mhz system clock as counted by the system VIA
+//
 public interface SoundChip {
-    void accept(final int cmd);
+    void accept(final long cycle, final int cmd);
+
+    // Emulated time has reached the given cycle
+    default void advanceTo(final long cycle) {
+        // Do nothing by default
+    }
+
     void setPaused(boolean paused);
 }
@@ -0,0 +1,72 @@
+package com.jbeeb.sound;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+//
+// Lock-free queue of cycle-stamped sound chip writes from the emulation thread (the only producer) to the
+// audio thread (the only consumer). The producer also publishes how far emulated time has got, so the consumer
+// knows which writes it can still expect.
+//
+final class SoundEventQueue {
+
+    private final int mask;
+    private final long[] cycles;
+    private final int[] values;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong publishedCycle = new AtomicLong(-1L);
+
+    SoundEventQueue(final int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException(capacity + ": capacity must be a power of 2");
+        }
+        this.mask = capacity - 1;
+        this.cycles = new long[capacity];
+        this.values = new int[capacity];
+    }
+
+    //
+    // Producer side
+    //
+    boolean offer(final long cycle, final int value) {
+        final long t = tail.get();
+        if (t - head.get() > mask) {
+            return false;
+        }
+        final int index = (int) t & mask;
+        cycles[index] = cycle;
+        values[index] = value;
+        tail.lazySet(t + 1);
+        publish(cycle);
+        return true;
+    }
+
+    void publish(final long cycle) {
+        publishedCycle.lazySet(cycle);
+    }
+
+    //
+    // Consumer side
+    //
+    long getPublishedCycle() {
+        return publishedCycle.get();
+    }
+
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    // Only valid if the queue is not empty
+    long peekCycle() {
+        return cycles[(int) head.get() & mask];
+    }
+
+    // Only valid if the queue is not empty
+    int poll() {
+        final long h = head.get();
+        final int value = values[(int) h & mask];
+        head.lazySet(h + 1);
+        return value;
+    }
+}
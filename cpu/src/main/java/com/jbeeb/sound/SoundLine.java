@@ -0,0 +1,203 @@
+package com.jbeeb.sound;
+
+import com.jbeeb.clock.ClockSpeed;
+import com.jbeeb.util.SystemStatus;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+
+//
+// Plays the mixed output of the sound chip through a single 16 bit audio line. The audio runs a little behind
+// emulated time and applies each queued register write at the sample it was made on, so the sound is the same
+// whatever the emulation speed.
+//
+// Only enough is written to keep the device buffer at its target fill, and the rate at which emulated time is
+// consumed is trimmed very slightly so that the audio stays the same distance behind the emulation rather than
+// drifting into underruns or skips when the clock speed wobbles. The device fill and the lag behind emulated time
+// together make up the target latency.
+//
+final class SoundLine extends Thread {
+
+    static final int SAMPLE_RATE = 44_100;
+    static final int CYCLE_RATE = ClockSpeed.TWO_MHZ;
+
+    private static final int BLOCK_SIZE = SAMPLE_RATE / 200;
+    private static final int BYTES_PER_SAMPLE = 2;
+    private static final int TARGET_LATENCY_MILLIS = 20;
+    private static final int TARGET_FILL_MILLIS = 10;
+    private static final int TARGET_FILL = SAMPLE_RATE * TARGET_FILL_MILLIS / 1000 * BYTES_PER_SAMPLE;
+    private static final int BUFFER_SIZE = TARGET_FILL + BLOCK_SIZE * BYTES_PER_SAMPLE;
+    private static final long WAIT_NANOS = 1_000_000L;
+
+    // Emulated cycles per sample, 16.16 fixed point
+    private static final long CYCLES_PER_SAMPLE = ((long) CYCLE_RATE << 16) / SAMPLE_RATE;
+
+    //
+    // How far the audio trails emulated time, so that writes have arrived by the time they are played. Emulated
+    // time is only published once a frame, so it is carried forward at the nominal rate in between (for no more
+    // than a frame) and the lag only has to cover the jitter in that. Any further behind than the maximum and the
+    // audio skips forward.
+    //
+    private static final long TARGET_LAG = ((long) CYCLE_RATE * (TARGET_LATENCY_MILLIS - TARGET_FILL_MILLIS) / 1000) << 16;
+    private static final long MAX_LAG = ((long) CYCLE_RATE / 4) << 16;
+    private static final long FRAME_NANOS = 20_000_000L;
+
+    // Resampling never moves more than this far from the true rate, which keeps pitch changes inaudible
+    private static final double MAX_RATE_ADJUSTMENT = 0.005;
+    private static final double LAG_SMOOTHING = 0.05;
+    private static final int STATUS_UPDATE_BLOCKS = 100;
+
+    private final SystemStatus systemStatus;
+    private final Sn76489 synth;
+    private final SoundEventQueue events;
+    private final SourceDataLine line;
+    private final byte[] data = new byte[BLOCK_SIZE * BYTES_PER_SAMPLE];
+
+    // Emulated cycle of the next sample, 16.16 fixed point
+    private long position = -1L;
+    private long cyclesPerSample = CYCLES_PER_SAMPLE;
+    private double smoothedLag = TARGET_LAG;
+
+    // The most recently published emulated cycle and when it was first seen
+    private long publishedCycle = -1L;
+    private long publishedNanos;
+
+    private long underruns;
+    private long overruns;
+    private int blocksSinceStatusUpdate;
+
+    private volatile boolean stopRequested = false;
+    private volatile boolean paused;
+
+    SoundLine(final SystemStatus systemStatus, final Sn76489 synth, final SoundEventQueue events) throws LineUnavailableException {
+        this(systemStatus, synth, events, AudioSystem.getSourceDataLine(new AudioFormat(SAMPLE_RATE, 16, 1, true, false)));
+    }
+
+    SoundLine(final SystemStatus systemStatus, final Sn76489 synth, final SoundEventQueue events, final SourceDataLine line) throws LineUnavailableException {
+        super("sound-line");
+        setDaemon(true);
+        this.systemStatus = Objects.requireNonNull(systemStatus);
+        this.synth = Objects.requireNonNull(synth);
+        this.events = Objects.requireNonNull(events);
+        this.line = Objects.requireNonNull(line);
+        line.open(new AudioFormat(SAMPLE_RATE, 16, 1, true, false), BUFFER_SIZE);
+        line.start();
+    }
+
+    void setPaused(final boolean paused) {
+        this.paused = paused;
+    }
+
+    void requestStop() {
+        stopRequested = true;
+    }
+
+    @Override
+    public void run() {
+        try {
+            boolean started = false;
+            while (!stopRequested) {
+                observePublishedCycle();
+                final int fill = line.getBufferSize() - line.available();
+                if (fill >= TARGET_FILL) {
+                    LockSupport.parkNanos(WAIT_NANOS);
+                    continue;
+                }
+                if (started && fill == 0) {
+                    underruns++;
+                }
+                if (paused) {
+                    synth.renderSilence(data, 0, BLOCK_SIZE);
+                } else {
+                    renderBlock();
+                }
+                line.write(data, 0, data.length);
+                started = true;
+                updateStatus(fill);
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private void observePublishedCycle() {
+        final long cycle = events.getPublishedCycle();
+        if (cycle != publishedCycle) {
+            publishedCycle = cycle;
+            publishedNanos = System.nanoTime();
+        }
+    }
+
+    // Emulated time now, carried forward from when it was last published
+    private long estimateNow() {
+        final long elapsed = Math.min(FRAME_NANOS, System.nanoTime() - publishedNanos);
+        return (publishedCycle << 16) + (((elapsed * CYCLE_RATE) << 16) / 1_000_000_000L);
+    }
+
+    private void renderBlock() {
+        if (publishedCycle < 0L) {
+            synth.renderSilence(data, 0, BLOCK_SIZE);
+            return;
+        }
+
+        final long now = estimateNow();
+        if (position < 0L || now - position > MAX_LAG) {
+            if (position >= 0L) {
+                overruns++;
+            }
+            position = now - TARGET_LAG;
+            smoothedLag = TARGET_LAG;
+        }
+
+        int done = 0;
+        while (!events.isEmpty()) {
+            final long due = ((events.peekCycle() << 16) - position) / cyclesPerSample;
+            if (due >= BLOCK_SIZE) {
+                break;
+            }
+            if (due > done) {
+                synth.render(data, done * BYTES_PER_SAMPLE, (int) due - done);
+                done = (int) due;
+            }
+            synth.write(events.poll());
+        }
+        synth.render(data, done * BYTES_PER_SAMPLE, BLOCK_SIZE - done);
+
+        // If emulated time hasn't got far enough it is held where it is rather than letting the audio run ahead
+        final long end = position + BLOCK_SIZE * cyclesPerSample;
+        if (end <= now) {
+            position = end;
+        } else {
+            underruns++;
+        }
+        adjustRate(now - position);
+    }
+
+    //
+    // Consume emulated time slightly faster when too far behind it and slightly slower when too close. The synth
+    // is told the effective sample rate so that pitch stays locked to emulated time.
+    //
+    private void adjustRate(final long lag) {
+        smoothedLag += (lag - smoothedLag) * LAG_SMOOTHING;
+        final double error = (smoothedLag - TARGET_LAG) / TARGET_LAG;
+        final double ratio = 1.0 + Math.max(-MAX_RATE_ADJUSTMENT, Math.min(MAX_RATE_ADJUSTMENT, error * MAX_RATE_ADJUSTMENT));
+        cyclesPerSample = Math.round(CYCLES_PER_SAMPLE * ratio);
+        synth.setSampleRate(SAMPLE_RATE / ratio);
+    }
+
+    private void updateStatus(final int fill) {
+        blocksSinceStatusUpdate++;
+        if (blocksSinceStatusUpdate == STATUS_UPDATE_BLOCKS) {
+            final double fillMillis = 1000.0 * fill / BYTES_PER_SAMPLE / SAMPLE_RATE;
+            final double lagMillis = 1000.0 * (smoothedLag / 65536.0) / CYCLE_RATE;
+            systemStatus.putDouble(SystemStatus.KEY_AUDIO_LATENCY_MILLIS, fillMillis + lagMillis);
+            systemStatus.putLong(SystemStatus.KEY_AUDIO_UNDERRUNS, underruns);
+            systemStatus.putLong(SystemStatus.KEY_AUDIO_OVERRUNS, overruns);
+            blocksSinceStatusUpdate = 0;
+        }
+    }
+}
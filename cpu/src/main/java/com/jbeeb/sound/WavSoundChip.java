@@ -0,0 +1,126 @@
+package com.jbeeb.sound;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+//
+// Renders the sound chip output to a 16 bit mono WAV file instead of an audio device. Everything happens on the
+// emulation thread in emulated time, so the file plays back at the right speed however fast the emulation ran
+// and the same run always produces the same file.
+//
+public final class WavSoundChip implements SoundChip {
+
+    private static final int BYTES_PER_SAMPLE = 2;
+    private static final int HEADER_SIZE = 44;
+    private static final int BUFFER_SAMPLES = 16384;
+
+    // Emulated cycles per sample, 16.16 fixed point
+    private static final long CYCLES_PER_SAMPLE = ((long) SoundLine.CYCLE_RATE << 16) / SoundLine.SAMPLE_RATE;
+
+    private final Sn76489 synth = new Sn76489(SoundLine.SAMPLE_RATE);
+    private final FileChannel channel;
+    private final byte[] data = new byte[BUFFER_SAMPLES * BYTES_PER_SAMPLE];
+
+    private int bufferedSamples;
+    private long samplesWritten;
+
+    // Emulated cycle of the next sample, 16.16 fixed point
+    private long position;
+    private boolean closed;
+
+    public WavSoundChip(final File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        writeHeader();
+    }
+
+    @Override
+    public synchronized void accept(final long cycle, final int value) {
+        renderTo(cycle);
+        synth.write(value);
+    }
+
+    @Override
+    public synchronized void advanceTo(final long cycle) {
+        renderTo(cycle);
+    }
+
+    @Override
+    public void setPaused(boolean paused) {
+        // Emulated time stops while paused so there is nothing to do
+    }
+
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+            writeHeader();
+            channel.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private void renderTo(final long cycle) {
+        if (closed) {
+            return;
+        }
+        int samples = (int) Math.max(0L, ((cycle << 16) - position) / CYCLES_PER_SAMPLE);
+        position += samples * CYCLES_PER_SAMPLE;
+        try {
+            while (samples > 0) {
+                final int count = Math.min(samples, BUFFER_SAMPLES - bufferedSamples);
+                synth.render(data, bufferedSamples * BYTES_PER_SAMPLE, count);
+                bufferedSamples += count;
+                samples -= count;
+                if (bufferedSamples == BUFFER_SAMPLES) {
+                    flush();
+                }
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            closed = true;
+        }
+    }
+
+    private void flush() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(data, 0, bufferedSamples * BYTES_PER_SAMPLE);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, HEADER_SIZE + samplesWritten * BYTES_PER_SAMPLE + buffer.position());
+        }
+        samplesWritten += bufferedSamples;
+        bufferedSamples = 0;
+    }
+
+    //
+    // Written with zero lengths at the start and again with the real ones on close
+    //
+    private void writeHeader() throws IOException {
+        final int dataSize = (int) Math.min(Integer.MAX_VALUE - HEADER_SIZE, samplesWritten * BYTES_PER_SAMPLE);
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes(StandardCharsets.US_ASCII));
+        header.putInt(HEADER_SIZE - 8 + dataSize);
+        header.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        header.put("fmt ".getBytes(StandardCharsets.US_ASCII));
+        header.putInt(16);
+        header.putShort((short) 1);
+        header.putShort((short) 1);
+        header.putInt(SoundLine.SAMPLE_RATE);
+        header.putInt(SoundLine.SAMPLE_RATE * BYTES_PER_SAMPLE);
+        header.putShort((short) BYTES_PER_SAMPLE);
+        header.putShort((short) (BYTES_PER_SAMPLE * 8));
+        header.put("data".getBytes(StandardCharsets.US_ASCII));
+        header.putInt(dataSize);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+}
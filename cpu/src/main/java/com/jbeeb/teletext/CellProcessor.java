@@ -1,7 +1,5 @@
 package com.jbeeb.teletext;
 
-import java.awt.*;
-
 interface CellProcessor {
-    void process(TeletextRenderer renderer, Graphics2D g, int x, int y, int width, int height);
+    void process(TeletextRenderer renderer, int[] pixels, int imageWidth, int x, int y);
 }
@@ -1,6 +1,5 @@
 package com.jbeeb.teletext;
 
-import java.awt.*;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -87,7 +86,7 @@ final class ControlCodeProcessorSet extends AbstractCellProcessorSet {
         }
 
         @Override
-        public void process(TeletextRenderer renderer, Graphics2D g, int x, int y, int width, int height) {
+        public void process(TeletextRenderer renderer, int[] pixels, int imageWidth, int x, int y) {
             // TODO: held characters
 
             if (rendererConsumer != null) {
@@ -0,0 +1,118 @@
+package com.jbeeb.teletext;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static com.jbeeb.teletext.TeletextConstants.TELETEXT_CHAR_HEIGHT;
+import static com.jbeeb.teletext.TeletextConstants.TELETEXT_CHAR_WIDTH;
+
+//
+// Pre-rasterised alpha masks for every alphanumeric and mosaic glyph. Each glyph is stored as three
+// consecutive masks - normal height, then the top and bottom halves of its double height form - so cells can
+// be painted with a plain array loop rather than through Java2D.
+//
+final class TeletextGlyphAtlas {
+
+    static final int GLYPH_SIZE = TELETEXT_CHAR_WIDTH * TELETEXT_CHAR_HEIGHT;
+
+    static final int NORMAL = 0;
+    static final int TOP = 1;
+    static final int BOTTOM = 2;
+
+    private static final int FORMS = 3;
+
+    private static final Map<AlphaDefinition, Integer> TEXT_GLYPHS = new IdentityHashMap<>();
+    private static final int[] MOSAIC_GLYPHS = new int[128];
+
+    private static byte[] masks = new byte[256 * FORMS * GLYPH_SIZE];
+    private static int glyphCount;
+
+    static {
+        for (int bits = 0; bits < 64; bits++) {
+            MOSAIC_GLYPHS[bits] = addMosaic(bits, false);
+            MOSAIC_GLYPHS[64 + bits] = addMosaic(bits, true);
+        }
+    }
+
+    private TeletextGlyphAtlas() {
+    }
+
+    static byte[] getMasks() {
+        return masks;
+    }
+
+    static int getMaskOffset(final int glyph, final int form) {
+        return (glyph + form) * GLYPH_SIZE;
+    }
+
+    static synchronized int getTextGlyph(final AlphaDefinition definition) {
+        return TEXT_GLYPHS.computeIfAbsent(definition, TeletextGlyphAtlas::addText);
+    }
+
+    static int getMosaicGlyph(final int bits, final boolean separated) {
+        return MOSAIC_GLYPHS[(separated ? 64 : 0) + (bits & 0x3F)];
+    }
+
+    private static int addText(final AlphaDefinition definition) {
+        final int glyph = allocate();
+        final BufferedImage image = TeletextAlphaDefinition.createCharacterImage(definition, Color.WHITE, false);
+        final BufferedImage doubleHeightImage = TeletextAlphaDefinition.createCharacterImage(definition, Color.WHITE, true);
+        copyAlpha(image, 0, getMaskOffset(glyph, NORMAL));
+        copyAlpha(doubleHeightImage, 0, getMaskOffset(glyph, TOP));
+        copyAlpha(doubleHeightImage, TELETEXT_CHAR_HEIGHT, getMaskOffset(glyph, BOTTOM));
+        return glyph;
+    }
+
+    private static int addMosaic(final int bits, final boolean separated) {
+        final int glyph = allocate();
+        final int offset = getMaskOffset(glyph, NORMAL);
+        final int pw = TELETEXT_CHAR_WIDTH / 2;
+        final int gap = separated ? 2 : 0;
+
+        fillBlock(bits, 1, offset, 0, 0, pw - gap, 6 - gap);
+        fillBlock(bits, 2, offset, pw, 0, pw - gap, 6 - gap);
+        fillBlock(bits, 4, offset, 0, 6, pw - gap, 8 - gap);
+        fillBlock(bits, 8, offset, pw, 6, pw - gap, 8 - gap);
+        fillBlock(bits, 16, offset, 0, 14, pw - gap, 6 - gap);
+        fillBlock(bits, 32, offset, pw, 14, pw - gap, 6 - gap);
+
+        // Double height halves are each half of the normal glyph stretched to the full cell
+        for (int y = 0; y < TELETEXT_CHAR_HEIGHT; y++) {
+            final int topRow = offset + (y / 2) * TELETEXT_CHAR_WIDTH;
+            final int bottomRow = offset + (TELETEXT_CHAR_HEIGHT / 2 + y / 2) * TELETEXT_CHAR_WIDTH;
+            System.arraycopy(masks, topRow, masks, getMaskOffset(glyph, TOP) + y * TELETEXT_CHAR_WIDTH, TELETEXT_CHAR_WIDTH);
+            System.arraycopy(masks, bottomRow, masks, getMaskOffset(glyph, BOTTOM) + y * TELETEXT_CHAR_WIDTH, TELETEXT_CHAR_WIDTH);
+        }
+        return glyph;
+    }
+
+    private static void fillBlock(final int bits, final int bit, final int offset, final int x, final int y, final int width, final int height) {
+        if ((bits & bit) != 0) {
+            for (int row = y; row < y + height; row++) {
+                final int start = offset + row * TELETEXT_CHAR_WIDTH + x;
+                Arrays.fill(masks, start, start + width, (byte) 0xFF);
+            }
+        }
+    }
+
+    private static void copyAlpha(final BufferedImage image, final int fromY, final int offset) {
+        int i = offset;
+        for (int y = fromY; y < fromY + TELETEXT_CHAR_HEIGHT; y++) {
+            for (int x = 0; x < TELETEXT_CHAR_WIDTH; x++) {
+                masks[i++] = (byte) (image.getRGB(x, y) >>> 24);
+            }
+        }
+    }
+
+    private static int allocate() {
+        final int glyph = glyphCount;
+        glyphCount += FORMS;
+        if (glyphCount * GLYPH_SIZE > masks.length) {
+            masks = Arrays.copyOf(masks, masks.length * 2);
+        }
+        return glyph;
+    }
+}
@@ -2,25 +2,34 @@ package com.jbeeb.teletext;
 
 import com.jbeeb.screen.SystemPalette;
 
-import java.awt.*;
+import java.util.Arrays;
+
+import static com.jbeeb.teletext.TeletextConstants.TELETEXT_CHAR_HEIGHT;
+import static com.jbeeb.teletext.TeletextConstants.TELETEXT_CHAR_WIDTH;
 
 final class TeletextRenderer {
 
-    private final CellProcessorSet alphaProcessorSet = new CompoundCellProcessorSet(
+    private static final int BLACK = SystemPalette.BLACK.getRGB() & 0xFFFFFF;
+    private static final int WHITE = SystemPalette.WHITE.getRGB() & 0xFFFFFF;
+
+    //
+    // The processor sets are flattened to plain lookup arrays so each cell costs one array index
+    //
+    private final CellProcessor[] alphaProcessors = toArray(new CompoundCellProcessorSet(
             new ControlCodeProcessorSet(),
             new TextCellProcessorSet()
-    );
+    ));
 
-    private final CellProcessorSet graphicsProcessorSet = new CompoundCellProcessorSet(
+    private final CellProcessor[] graphicsProcessors = toArray(new CompoundCellProcessorSet(
             new ControlCodeProcessorSet(),
             new GraphicsCellProcessorSet()
-    );
+    ));
 
-    private CellProcessorSet cellProcessorSet;
+    private CellProcessor[] cellProcessors;
     private int foregroundIndex;
-    private Color background;
+    private int background;
     private boolean graphicsEnabled;
-    private Color graphicsColour;
+    private int graphicsColour;
     private boolean flashing;
     private boolean doubleHeight;
     private boolean conceal;
@@ -29,18 +38,16 @@ final class TeletextRenderer {
     private boolean textShowing = true;
     private boolean bottom = true;
 
-    private SystemPalette systemPalette = SystemPalette.DEFAULT;
-
     public TeletextRenderer() {
         resetToDefaults();
     }
 
     public void resetToDefaults() {
-        this.cellProcessorSet = alphaProcessorSet;
+        this.cellProcessors = alphaProcessors;
         this.foregroundIndex = 7;
-        this.background = SystemPalette.BLACK;
+        this.background = BLACK;
         this.graphicsEnabled = false;
-        this.graphicsColour = SystemPalette.WHITE;
+        this.graphicsColour = WHITE;
         this.flashing = false;
         this.doubleHeight = false;
         this.conceal = false;
@@ -48,38 +55,77 @@ final class TeletextRenderer {
         this.holdGraphics = false;
     }
 
-    public int getForegroundIndex() {
-        return foregroundIndex;
+    public int getForegroundRGB() {
+        return TeletextConstants.getRGB(foregroundIndex);
     }
 
-    public Color getGraphicsColour() {
+    public int getGraphicsRGB() {
         return graphicsColour;
     }
 
-    public void paintCell(final Graphics2D g, final int v, final int x, final int y, final int width, final int height) {
+    public void paintCell(final int[] pixels, final int imageWidth, final int v, final int x, final int y) {
         //
         // Paint background
         //
-        g.setColor(background);
-        g.fillRect(x, y, width, height);
+        int offset = y * imageWidth + x;
+        for (int row = 0; row < TELETEXT_CHAR_HEIGHT; row++) {
+            Arrays.fill(pixels, offset, offset + TELETEXT_CHAR_WIDTH, background);
+            offset += imageWidth;
+        }
 
-        final CellProcessor processor = cellProcessorSet.getProcessor(v);
+        final CellProcessor processor = cellProcessors[v & 0xFF];
         if (processor != null) {
-            processor.process(this, g, x, y, width, height);
+            processor.process(this, pixels, imageWidth, x, y);
+        }
+    }
+
+    //
+    // Blends a glyph mask over the cell, choosing the double height half if one is in effect
+    //
+    public void paintGlyph(final int[] pixels, final int imageWidth, final int x, final int y, final int glyph, final int rgb) {
+        final int form = doubleHeight ? (bottom ? TeletextGlyphAtlas.BOTTOM : TeletextGlyphAtlas.TOP) : TeletextGlyphAtlas.NORMAL;
+        final byte[] masks = TeletextGlyphAtlas.getMasks();
+        int m = TeletextGlyphAtlas.getMaskOffset(glyph, form);
+        int offset = y * imageWidth + x;
+        for (int row = 0; row < TELETEXT_CHAR_HEIGHT; row++) {
+            for (int i = offset; i < offset + TELETEXT_CHAR_WIDTH; i++) {
+                final int alpha = masks[m++] & 0xFF;
+                if (alpha == 0xFF) {
+                    pixels[i] = rgb;
+                } else if (alpha != 0) {
+                    pixels[i] = blend(pixels[i], rgb, alpha);
+                }
+            }
+            offset += imageWidth;
+        }
+    }
+
+    private static int blend(final int under, final int over, final int alpha) {
+        final int inverse = 255 - alpha;
+        final int r = (((over >>> 16) & 0xFF) * alpha + ((under >>> 16) & 0xFF) * inverse) / 255;
+        final int g = (((over >>> 8) & 0xFF) * alpha + ((under >>> 8) & 0xFF) * inverse) / 255;
+        final int b = ((over & 0xFF) * alpha + (under & 0xFF) * inverse) / 255;
+        return (r << 16) | (g << 8) | b;
+    }
+
+    private static CellProcessor[] toArray(final CellProcessorSet set) {
+        final CellProcessor[] processors = new CellProcessor[256];
+        for (int code = 0; code < processors.length; code++) {
+            processors[code] = set.getProcessor(code);
         }
+        return processors;
     }
 
     public void enableText(final int colourIndex) {
         foregroundIndex = colourIndex;
-        graphicsColour = null;
         graphicsEnabled = false;
-        cellProcessorSet = alphaProcessorSet;
+        cellProcessors = alphaProcessors;
     }
 
     public void enableGraphics(final int colourIndex) {
-        graphicsColour = TeletextConstants.getColour(colourIndex);
+        graphicsColour = TeletextConstants.getRGB(colourIndex);
         graphicsEnabled = true;
-        cellProcessorSet = graphicsProcessorSet;
+        cellProcessors = graphicsProcessors;
     }
 
     public void setFlashing(final boolean flashing) {
@@ -108,11 +154,11 @@ final class TeletextRenderer {
     }
 
     public void blackBackground() {
-        background = SystemPalette.BLACK;
+        background = BLACK;
     }
 
     public void newBackground() {
-        background = TeletextConstants.getColour(foregroundIndex);
+        background = TeletextConstants.getRGB(foregroundIndex);
     }
 
     public void setHoldGraphics(boolean holdGraphics) {
@@ -1,96 +1,146 @@
 package com.jbeeb.teletext;
 
-import com.jbeeb.clock.ClockSpeed;
 import com.jbeeb.device.Crtc6845;
-import com.jbeeb.device.SystemVIA;
 import com.jbeeb.device.VideoULA;
 import com.jbeeb.screen.AbstractScreenRenderer;
-import com.jbeeb.memory.Memory;
+import com.jbeeb.screen.FrameBuffer;
+import com.jbeeb.screen.FrameSnapshot;
 import com.jbeeb.screen.SystemPalette;
+import com.jbeeb.util.SystemStatus;
 
-import java.awt.Graphics2D;
 import java.awt.Rectangle;
-import java.awt.image.BufferedImage;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
 
 import static com.jbeeb.teletext.TeletextConstants.TELETEXT_CHAR_HEIGHT;
 import static com.jbeeb.teletext.TeletextConstants.TELETEXT_CHAR_WIDTH;
+import static com.jbeeb.teletext.TeletextConstants.TELETEXT_FLASH_PERIOD;
 
 public final class TeletextScreenRenderer extends AbstractScreenRenderer {
 
-    private final TeletextRenderer renderer = new TeletextRenderer();
-
-    public TeletextScreenRenderer(Memory memory, SystemVIA systemVIA, Crtc6845 crtc6845, VideoULA videoULA) {
-        super(memory, systemVIA, crtc6845, videoULA);
-        final Timer flashTimer = new Timer("teletext-flasher", true);
-        final TimerTask task = new TimerTask() {
-            @Override
-            public void run() {
-                renderer.setTextShowing(!renderer.isTextShowing());
-            }
-        };
-        flashTimer.scheduleAtFixedRate(task, 1000L, 1000L);
-    }
+    private static final int ROWS = 25;
+    private static final int COLUMNS = 40;
+    private static final int FLASH_CODE = 136;
+    private static final int STATUS_UPDATE_FRAMES = 50;
 
-    @Override
-    public boolean isClockBased() {
-        return false;
-    }
+    private final SystemStatus systemStatus;
+    private final TeletextRenderer renderer = new TeletextRenderer();
 
-    @Override
-    public void tick(final BufferedImage image, final ClockSpeed clockSpeed, final long elapsedNanos) {
-        throw new UnsupportedOperationException();
-    }
+    //
+    // What was last painted into each of the frame buffers this renderer is handed, so that only rows that
+    // would come out differently need to be painted again
+    //
+    private final Map<FrameBuffer, RowSignatures> signatures = new IdentityHashMap<>();
 
-    @Override
-    public boolean isImageReady() {
-        return true;
-    }
+    private long firstFrameTime = -1L;
+    private int frameCount;
+    private int repaintedRows;
 
-    @Override
-    public void newFrame() {
-        throw new UnsupportedOperationException();
+    public TeletextScreenRenderer(final SystemStatus systemStatus) {
+        this.systemStatus = Objects.requireNonNull(systemStatus);
     }
 
     @Override
-    public void refreshWholeImage(BufferedImage img) {
-        final Graphics2D g = img.createGraphics();
+    public void render(final FrameSnapshot snapshot, final FrameBuffer frameBuffer) {
+        final int[] pixels = frameBuffer.getPixels();
+        final int imageWidth = frameBuffer.getWidth();
+        final int[] crtcRegisters = snapshot.getCrtcRegisters();
+        final boolean cursorOn = Crtc6845.isCursorEnabled(crtcRegisters) && snapshot.isCursorBlinkOn() && VideoULA.isCursorEnabled(snapshot.getVideoControlRegister());
+
+        // Flashing text is shown and hidden for a second at a time of emulated time
+        final boolean textShowing = ((snapshot.getFrameNumber() / TELETEXT_FLASH_PERIOD) & 1L) == 0L;
+        renderer.setTextShowing(textShowing);
+
+        final RowSignatures previous = signatures.computeIfAbsent(frameBuffer, f -> new RowSignatures());
+        final boolean redrawAll = (frameBuffer.getContentOwner() != this);
+        if (redrawAll) {
+            frameBuffer.fill(SystemPalette.BLACK.getRGB() & 0xFFFFFF);
+            frameBuffer.setContentOwner(this);
+        }
 
         renderer.setBottom(true);
 
-        final int leftMargin = (img.getWidth() - (TELETEXT_CHAR_WIDTH * 40)) / 2;
-
-        g.setColor(SystemPalette.BLACK);
-        g.fillRect(0, 0, img.getWidth(), img.getHeight());
-
-        final int unadjustedStartAddress = crtc6845.getScreenStartAddress();
-        int address = adjustMode7Address(unadjustedStartAddress);
-        final int cursorAddress = adjustMode7Address(crtc6845.getCursorAddress());
-
-        Rectangle cursorRect = null;
-
-        for (int y = 0; y < (TELETEXT_CHAR_HEIGHT * 25); y += TELETEXT_CHAR_HEIGHT) {
+        final int leftMargin = (imageWidth - (TELETEXT_CHAR_WIDTH * COLUMNS)) / 2;
+
+        final int unadjustedStartAddress = Crtc6845.getScreenStartAddress(crtcRegisters);
+        int address = Crtc6845.toTeletextAddress(unadjustedStartAddress);
+        final int cursorAddress = Crtc6845.toTeletextAddress(Crtc6845.getCursorAddress(crtcRegisters));
+
+        for (int row = 0; row < ROWS; row++) {
+            final int y = row * TELETEXT_CHAR_HEIGHT;
+
+            //
+            // A row comes out the same if its bytes, the double height state carried into it, the cursor and
+            // (for rows containing flashing text) the flash phase are all unchanged
+            //
+            boolean changed = redrawAll;
+            boolean flashes = false;
+            int cursorColumn = -1;
+            int a = address;
+            for (int column = 0; column < COLUMNS; column++) {
+                final int v = snapshot.readByte(a);
+                final int i = row * COLUMNS + column;
+                if (previous.bytes[i] != v) {
+                    previous.bytes[i] = v;
+                    changed = true;
+                }
+                flashes |= (v == FLASH_CODE);
+                if (cursorOn && a == cursorAddress) {
+                    cursorColumn = column;
+                }
+                a = nextAddress(a);
+            }
 
-            renderer.resetToDefaults();
+            final int state = (renderer.isBottom() ? 1 : 0) | ((flashes && textShowing) ? 2 : 0) | ((cursorColumn + 1) << 2);
+            if (previous.states[row] != state) {
+                previous.states[row] = state;
+                changed = true;
+            }
 
-            for (int x = leftMargin; x < (TELETEXT_CHAR_WIDTH * 40 + leftMargin); x += TELETEXT_CHAR_WIDTH) {
-                if (crtc6845.isCursorEnabled() && crtc6845.isCursorOn() && videoULA.isCursorEnabled() && address == cursorAddress) {
-                    cursorRect = new Rectangle(x, y, TELETEXT_CHAR_WIDTH, TELETEXT_CHAR_HEIGHT);
+            if (changed) {
+                renderer.resetToDefaults();
+                for (int column = 0; column < COLUMNS; column++) {
+                    renderer.paintCell(pixels, imageWidth, snapshot.readByte(address), leftMargin + column * TELETEXT_CHAR_WIDTH, y);
+                    address = nextAddress(address);
                 }
-                renderer.paintCell(g, memory.readByte(address), x, y, TELETEXT_CHAR_WIDTH, TELETEXT_CHAR_HEIGHT);
-                address++;
-                if (address >= 0x8000) {
-                    address -= 1024;
+                if (cursorColumn >= 0) {
+                    paintCursor(frameBuffer, new Rectangle(leftMargin + cursorColumn * TELETEXT_CHAR_WIDTH, y, TELETEXT_CHAR_WIDTH, TELETEXT_CHAR_HEIGHT), TELETEXT_CHAR_HEIGHT / 8);
                 }
+                previous.bottomAfter[row] = renderer.isBottom();
+                repaintedRows++;
+            } else {
+                renderer.setBottom(previous.bottomAfter[row]);
+                address = a;
             }
         }
 
-        paintCursor(g, cursorRect, TELETEXT_CHAR_HEIGHT / 8);
+        // The image is already centred horizontally
+        frameBuffer.setOrigin(0, 0);
+        updateStatus();
+    }
+
+    private void updateStatus() {
+        if (firstFrameTime < 0L) {
+            firstFrameTime = System.nanoTime();
+        }
+        frameCount++;
+        if (frameCount == STATUS_UPDATE_FRAMES) {
+            final double secs = (System.nanoTime() - firstFrameTime) / 1_000_000_000.0;
+            systemStatus.putDouble(SystemStatus.KEY_TELETEXT_ROWS_REPAINTED_PER_SECOND, repaintedRows / secs);
+            firstFrameTime = System.nanoTime();
+            frameCount = 0;
+            repaintedRows = 0;
+        }
+    }
+
+    private static int nextAddress(final int address) {
+        return (address + 1 >= 0x8000) ? address + 1 - 1024 : address + 1;
     }
 
-    private static int adjustMode7Address(final int unadjustedAddress) {
-        final int addrH = ((((unadjustedAddress >>> 8) & 0xFF) ^ 0x20) + 0x74);
-        return (unadjustedAddress & 0xFF) | ((addrH & 0xFF) << 8);
+    private static final class RowSignatures {
+        final int[] bytes = new int[ROWS * COLUMNS];
+        final int[] states = new int[ROWS];
+        final boolean[] bottomAfter = new boolean[ROWS];
     }
 }
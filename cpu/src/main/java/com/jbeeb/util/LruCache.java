@@ -1,32 +1,119 @@
 package com.jbeeb.util;
 
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
+//
+// Least recently used cache bounded by entry count and, optionally, by the total weight of its values. It isn't
+// thread safe - a cache that is shared between threads must be locked by its owner. Values that hold resources
+// can be given a listener that is told when they leave the cache.
+//
 public class LruCache<K, V> {
 
     private final int maxSize;
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final Consumer<V> removalListener;
 
-    private final LinkedHashMap<K, V> cache = new LinkedHashMap<>() {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-            return size() > maxSize;
-        }
-    };
+    private final LinkedHashMap<K, V> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
 
     public LruCache(final int maxSize) {
-        this.maxSize = Math.min(1, maxSize);
+        this(maxSize, Long.MAX_VALUE, v -> 0L);
+    }
+
+    public LruCache(final int maxSize, final Consumer<V> removalListener) {
+        this(maxSize, Long.MAX_VALUE, v -> 0L, removalListener);
+    }
+
+    public LruCache(final int maxSize, final long maxWeight, final ToLongFunction<V> weigher) {
+        this(maxSize, maxWeight, weigher, v -> {});
+    }
+
+    public LruCache(final int maxSize, final long maxWeight, final ToLongFunction<V> weigher, final Consumer<V> removalListener) {
+        this.maxSize = Math.max(1, maxSize);
+        this.maxWeight = maxWeight;
+        this.weigher = Objects.requireNonNull(weigher);
+        this.removalListener = Objects.requireNonNull(removalListener);
     }
 
     public V get(final K key) {
-        return cache.get(key);
+        final V value = cache.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
     }
 
     public void put(final K key, final V value) {
-        cache.put(key, value);
+        final V old = cache.put(key, value);
+        if (old != null) {
+            weight -= weigher.applyAsLong(old);
+            if (old != value) {
+                removalListener.accept(old);
+            }
+        }
+        weight += weigher.applyAsLong(value);
+
+        // The newest entry is always kept, even if it is too heavy on its own
+        final Iterator<Map.Entry<K, V>> it = cache.entrySet().iterator();
+        while ((cache.size() > maxSize || weight > maxWeight) && cache.size() > 1) {
+            final Map.Entry<K, V> eldest = it.next();
+            weight -= weigher.applyAsLong(eldest.getValue());
+            it.remove();
+            evictions++;
+            removalListener.accept(eldest.getValue());
+        }
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getWeight() {
+        return weight;
+    }
+
+    public V remove(final K key) {
+        final V value = cache.remove(key);
+        if (value != null) {
+            weight -= weigher.applyAsLong(value);
+            removalListener.accept(value);
+        }
+        return value;
     }
 
     public void clear() {
+        cache.values().forEach(removalListener);
         cache.clear();
+        weight = 0L;
+    }
+
+    public long getHitCount() {
+        return hits;
+    }
+
+    public long getMissCount() {
+        return misses;
+    }
+
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    public void resetStats() {
+        hits = 0L;
+        misses = 0L;
+        evictions = 0L;
     }
 }
@@ -0,0 +1,262 @@
+package com.jbeeb.util;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+//
+// Binary machine snapshot. Each component with a @StateKey is written as a section of its keyed, typed fields
+// in a fixed order, with memory and other byte valued arrays stored as raw bytes. Sections and fields are found
+// by key when applied, so fields that have been added or removed since a snapshot was taken are skipped rather
+// than breaking it.
+//
+// Files written in the older State format don't start with the magic number and are still read by State.
+//
+public final class Snapshot {
+
+    private static final int MAGIC = 0x4A42534E; // "JBSN"
+    private static final int VERSION = 1;
+
+    private final byte[] data;
+
+    private Snapshot(final byte[] data) {
+        this.data = data;
+    }
+
+    public static Snapshot capture(final Object... components) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(65536);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        int count = 0;
+        for (Object c : components) {
+            if (StateSchema.of(c.getClass()).getKey() != null) {
+                count++;
+            }
+        }
+        out.writeInt(count);
+        for (Object c : components) {
+            final StateSchema schema = StateSchema.of(c.getClass());
+            if (schema.getKey() != null) {
+                writeSection(out, schema, c);
+            }
+        }
+        out.flush();
+        return new Snapshot(bytes.toByteArray());
+    }
+
+    public void apply(final Object... components) throws IOException {
+        final Map<String, Object> byKey = new HashMap<>();
+        for (Object c : components) {
+            final String key = StateSchema.of(c.getClass()).getKey();
+            if (key != null) {
+                byKey.put(key, c);
+            }
+        }
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        readHeader(in);
+        final int sections = in.readInt();
+        for (int i = 0; i < sections; i++) {
+            final Object component = byKey.get(in.readUTF());
+            final StateSchema schema = (component == null) ? null : StateSchema.of(component.getClass());
+            final int fields = in.readInt();
+            for (int j = 0; j < fields; j++) {
+                final String fieldKey = in.readUTF();
+                final StateSchema.StateField field = (schema == null) ? null : schema.getField(fieldKey);
+                readField(in, field, component);
+            }
+        }
+    }
+
+    public void write(final File file) throws IOException {
+        Files.write(file.toPath(), data);
+    }
+
+    public static Snapshot read(final File file) throws IOException {
+        final byte[] data = Files.readAllBytes(file.toPath());
+        readHeader(new DataInputStream(new ByteArrayInputStream(data)));
+        return new Snapshot(data);
+    }
+
+    // Applies a saved state file in either format
+    public static void restore(final File file, final Object... components) throws Exception {
+        if (isSnapshot(file)) {
+            read(file).apply(components);
+        } else {
+            final State state = State.read(file);
+            for (Object c : components) {
+                Util.applyState(state, c);
+            }
+        }
+    }
+
+    public static boolean isSnapshot(final File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (EOFException ex) {
+            return false;
+        }
+    }
+
+    private static void readHeader(final DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a snapshot");
+        }
+        final int version = in.readInt();
+        if (version > VERSION) {
+            throw new IOException("Snapshot version " + version + " is newer than this version (" + VERSION + ")");
+        }
+    }
+
+    //
+    // Writing
+    //
+    private static void writeSection(final DataOutput out, final StateSchema schema, final Object obj) throws IOException {
+        out.writeUTF(schema.getKey());
+        out.writeInt(schema.getFields().size());
+        for (StateSchema.StateField f : schema.getFields()) {
+            out.writeUTF(f.key);
+            switch (f.type) {
+                case StateSchema.TYPE_INT:
+                    out.writeByte(f.type);
+                    out.writeInt((int) f.handle.get(obj));
+                    break;
+                case StateSchema.TYPE_LONG:
+                    out.writeByte(f.type);
+                    out.writeLong((long) f.handle.get(obj));
+                    break;
+                case StateSchema.TYPE_BOOLEAN:
+                    out.writeByte(f.type);
+                    out.writeBoolean((boolean) f.handle.get(obj));
+                    break;
+                case StateSchema.TYPE_DOUBLE:
+                    out.writeByte(f.type);
+                    out.writeDouble((double) f.handle.get(obj));
+                    break;
+                case StateSchema.TYPE_STRING: {
+                    final String s = (String) f.handle.get(obj);
+                    out.writeByte(f.type);
+                    out.writeUTF((s == null) ? "" : s);
+                    break;
+                }
+                case StateSchema.TYPE_INT_ARRAY: {
+                    final int[] array = (int[]) f.handle.get(obj);
+                    writeArray(out, (array == null) ? new int[0] : array);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void writeArray(final DataOutput out, final int[] array) throws IOException {
+        boolean bytes = true;
+        for (int v : array) {
+            if ((v & ~0xFF) != 0) {
+                bytes = false;
+                break;
+            }
+        }
+        out.writeByte(bytes ? StateSchema.TYPE_BYTE_ARRAY : StateSchema.TYPE_INT_ARRAY);
+        out.writeInt(array.length);
+        if (bytes) {
+            final byte[] b = new byte[array.length];
+            for (int i = 0; i < array.length; i++) {
+                b[i] = (byte) array[i];
+            }
+            out.write(b);
+        } else {
+            for (int v : array) {
+                out.writeInt(v);
+            }
+        }
+    }
+
+    //
+    // Reading - a field with no match in the component is read and dropped
+    //
+    private static void readField(final DataInput in, final StateSchema.StateField field, final Object obj) throws IOException {
+        final byte type = in.readByte();
+        final boolean apply = (field != null) && matches(field.type, type);
+        switch (type) {
+            case StateSchema.TYPE_INT: {
+                final int v = in.readInt();
+                if (apply && field.settable) {
+                    field.handle.set(obj, v);
+                }
+                break;
+            }
+            case StateSchema.TYPE_LONG: {
+                final long v = in.readLong();
+                if (apply && field.settable) {
+                    field.handle.set(obj, v);
+                }
+                break;
+            }
+            case StateSchema.TYPE_BOOLEAN: {
+                final boolean v = in.readBoolean();
+                if (apply && field.settable) {
+                    field.handle.set(obj, v);
+                }
+                break;
+            }
+            case StateSchema.TYPE_DOUBLE: {
+                final double v = in.readDouble();
+                if (apply && field.settable) {
+                    field.handle.set(obj, v);
+                }
+                break;
+            }
+            case StateSchema.TYPE_STRING: {
+                final String v = in.readUTF();
+                if (apply && field.settable) {
+                    field.handle.set(obj, v);
+                }
+                break;
+            }
+            case StateSchema.TYPE_INT_ARRAY:
+            case StateSchema.TYPE_BYTE_ARRAY: {
+                final int[] v = readArray(in, type);
+                if (apply) {
+                    applyArray(field, obj, v);
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown field type " + type);
+        }
+    }
+
+    private static boolean matches(final byte fieldType, final byte type) {
+        return fieldType == type || (fieldType == StateSchema.TYPE_INT_ARRAY && type == StateSchema.TYPE_BYTE_ARRAY);
+    }
+
+    private static int[] readArray(final DataInput in, final byte type) throws IOException {
+        final int[] array = new int[in.readInt()];
+        if (type == StateSchema.TYPE_BYTE_ARRAY) {
+            final byte[] b = new byte[array.length];
+            in.readFully(b);
+            for (int i = 0; i < array.length; i++) {
+                array[i] = b[i] & 0xFF;
+            }
+        } else {
+            for (int i = 0; i < array.length; i++) {
+                array[i] = in.readInt();
+            }
+        }
+        return array;
+    }
+
+    // Copied into the existing array where there is one of the right size, so final arrays are restored too
+    private static void applyArray(final StateSchema.StateField field, final Object obj, final int[] values) {
+        final int[] current = (int[]) field.handle.get(obj);
+        if (current != null && current.length == values.length) {
+            System.arraycopy(values, 0, current, 0, values.length);
+        } else if (field.settable) {
+            field.handle.set(obj, values);
+        } else if (current != null) {
+            System.arraycopy(values, 0, current, 0, Math.min(values.length, current.length));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.jbeeb.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+//
+// The @StateKey fields of a class, found once per class and reached through VarHandles so that taking or
+// applying a snapshot does no reflective lookups.
+//
+final class StateSchema {
+
+    static final byte TYPE_INT = 1;
+    static final byte TYPE_LONG = 2;
+    static final byte TYPE_BOOLEAN = 3;
+    static final byte TYPE_DOUBLE = 4;
+    static final byte TYPE_STRING = 5;
+    static final byte TYPE_INT_ARRAY = 6;
+
+    // An int array whose values are all bytes, such as memory, written as one byte per value
+    static final byte TYPE_BYTE_ARRAY = 7;
+
+    private static final ClassValue<StateSchema> SCHEMAS = new ClassValue<>() {
+        @Override
+        protected StateSchema computeValue(final Class<?> type) {
+            return new StateSchema(type);
+        }
+    };
+
+    private final String key;
+    private final List<StateField> fields = new ArrayList<>();
+    private final Map<String, StateField> fieldsByKey = new HashMap<>();
+
+    private StateSchema(final Class<?> cl) {
+        final StateKey classKey = cl.getAnnotation(StateKey.class);
+        this.key = (classKey == null) ? null : classKey.key();
+        if (key != null) {
+            for (Class<?> c = cl; c != Object.class && c != null; c = c.getSuperclass()) {
+                for (Field f : c.getDeclaredFields()) {
+                    final StateKey fieldKey = f.getAnnotation(StateKey.class);
+                    final byte type = typeOf(f.getType());
+                    if (fieldKey != null && type != 0) {
+                        final StateField field = new StateField(fieldKey.key(), type, f);
+                        fields.add(field);
+                        fieldsByKey.putIfAbsent(field.key, field);
+                    }
+                }
+            }
+        }
+    }
+
+    static StateSchema of(final Class<?> cl) {
+        return SCHEMAS.get(cl);
+    }
+
+    // The class's state key, or null if it has no state
+    String getKey() {
+        return key;
+    }
+
+    List<StateField> getFields() {
+        return fields;
+    }
+
+    StateField getField(final String key) {
+        return fieldsByKey.get(key);
+    }
+
+    private static byte typeOf(final Class<?> type) {
+        if (type == int.class) {
+            return TYPE_INT;
+        } else if (type == long.class) {
+            return TYPE_LONG;
+        } else if (type == boolean.class) {
+            return TYPE_BOOLEAN;
+        } else if (type == double.class) {
+            return TYPE_DOUBLE;
+        } else if (type == String.class) {
+            return TYPE_STRING;
+        } else if (type == int[].class) {
+            return TYPE_INT_ARRAY;
+        }
+        return 0;
+    }
+
+    static final class StateField {
+        final String key;
+        final byte type;
+        final VarHandle handle;
+
+        // Final fields are written but can't be set - arrays are restored by copying into them instead
+        final boolean settable;
+
+        StateField(final String key, final byte type, final Field field) {
+            this.key = key;
+            this.type = type;
+            this.settable = !Modifier.isFinal(field.getModifiers());
+            try {
+                this.handle = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup()).unreflectVarHandle(field);
+            } catch (IllegalAccessException ex) {
+                throw new IllegalStateException(field + ": cannot access state field", ex);
+            }
+        }
+    }
+}
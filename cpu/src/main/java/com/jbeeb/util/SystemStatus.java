@@ -6,4 +6,13 @@ public final class SystemStatus extends TypedProperties {
     public static final String KEY_MILLION_CYCLES_PER_SECOND = "mega-cycles-per-second";
     public static final String KEY_AVG_DISPLAY_REFRESH_TIME_MILLIS = "avg-display-refresh-time-millis";
     public static final String KEY_VSYNCS_PER_SECOND = "vsyncs-per-second";
+    public static final String KEY_FRAMES_RENDERED_PER_SECOND = "frames-rendered-per-second";
+    public static final String KEY_CAPTURE_DROPPED_FRAMES = "capture-dropped-frames";
+    public static final String KEY_TELETEXT_ROWS_REPAINTED_PER_SECOND = "teletext-rows-repainted-per-second";
+    public static final String KEY_AUDIO_LATENCY_MILLIS = "audio-latency-millis";
+    public static final String KEY_AUDIO_UNDERRUNS = "audio-underruns";
+    public static final String KEY_AUDIO_OVERRUNS = "audio-overruns";
+    public static final String KEY_DISC_IMAGE_CACHE_HITS = "disc-image-cache-hits";
+    public static final String KEY_DISC_IMAGE_CACHE_MISSES = "disc-image-cache-misses";
+    public static final String KEY_DISC_IMAGE_CACHE_EVICTIONS = "disc-image-cache-evictions";
 }
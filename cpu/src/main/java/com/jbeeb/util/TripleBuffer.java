@@ -0,0 +1,58 @@
+package com.jbeeb.util;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+//
+// Lock-free handoff of the latest value from one producer thread to one consumer thread. The producer fills
+// the back slot and publishes it, the consumer takes whatever was published most recently - older values are
+// simply overwritten so neither side ever waits for the other.
+//
+public final class TripleBuffer<T> {
+
+    private static final int INDEX_MASK = 0x3;
+    private static final int FRESH = 0x4;
+
+    private final Object[] slots = new Object[3];
+    private final AtomicInteger middle = new AtomicInteger(1);
+
+    // Only touched by the producer
+    private int back = 0;
+
+    // Only touched by the consumer
+    private int front = 2;
+
+    public TripleBuffer(final Supplier<T> factory) {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = Objects.requireNonNull(factory.get());
+        }
+    }
+
+    //
+    // Producer side
+    //
+    @SuppressWarnings("unchecked")
+    public T getBack() {
+        return (T) slots[back];
+    }
+
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    //
+    // Consumer side
+    //
+    public boolean hasFresh() {
+        return (middle.get() & FRESH) != 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if (hasFresh()) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return (T) slots[front];
+    }
+}
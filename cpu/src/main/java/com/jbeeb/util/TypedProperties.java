@@ -3,18 +3,28 @@ package com.jbeeb.util;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
+//
+// Concurrent maps, as the system status is written by the emulation, render, capture and audio threads and read
+// by the UI
+//
 public class TypedProperties {
 
-    private final Map<String, String> map = new HashMap<>();
-    private final Map<String, int[]> arrayMap = new HashMap<>();
+    private final Map<String, String> map = new ConcurrentHashMap<>();
+    private final Map<String, int[]> arrayMap = new ConcurrentHashMap<>();
 
     public final void putString(final String key, final String value) {
-        map.put(Objects.requireNonNull(key), value);
+        if (value == null) {
+            map.remove(Objects.requireNonNull(key));
+        } else {
+            map.put(Objects.requireNonNull(key), value);
+        }
     }
 
     public final boolean containsKey(String key) {
@@ -80,15 +90,17 @@ public class TypedProperties {
     }
 
     public final void write(final DataOutput out) throws IOException {
-        out.writeInt(map.size());
-
-        for (Map.Entry<String, String> e : map.entrySet()) {
+        // Copied first so that the counts match what is written if another thread is still adding entries
+        final List<Map.Entry<String, String>> entries = new ArrayList<>(map.entrySet());
+        out.writeInt(entries.size());
+        for (Map.Entry<String, String> e : entries) {
             out.writeUTF(e.getKey());
             out.writeUTF(e.getValue());
         }
 
-        out.writeInt(arrayMap.size());
-        for (Map.Entry<String, int[]> e : arrayMap.entrySet()) {
+        final List<Map.Entry<String, int[]>> arrayEntries = new ArrayList<>(arrayMap.entrySet());
+        out.writeInt(arrayEntries.size());
+        for (Map.Entry<String, int[]> e : arrayEntries) {
             out.writeUTF(e.getKey());
             writeArray(out, e.getValue());
         }
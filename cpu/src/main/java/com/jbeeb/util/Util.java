@@ -11,6 +11,7 @@ import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.io.*;
 import java.lang.reflect.Field;
+import java.nio.file.Files;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.time.LocalDateTime;
@@ -399,20 +400,7 @@ public final class Util {
     }
 
     public static byte[] readFileAsbytes(final File file) throws IOException {
-        final long size = file.length();
-        final byte[] ret = new byte[(int) size];
-        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
-            int i = 0;
-            while (true) {
-                final int b = in.read();
-                if (b < 0) {
-                    break;
-                }
-                ret[i] = (byte) b;
-                i++;
-            }
-        }
-        return ret;
+        return Files.readAllBytes(file.toPath());
     }
 
     public static DiskDetails getDiskDetails(final String name) {
@@ -459,6 +447,25 @@ public final class Util {
         }
     }
 
+    public static void fillRect(final int[] buf, final int rgb, final int x, final int y, final int width, final int height, final int imageWidth) {
+        for (int ry = y; ry < y + height; ry++) {
+            final int rowOffset = ry * imageWidth;
+            for (int rx = x; rx < x + width; rx++) {
+                buf[rowOffset + (rx % imageWidth)] = rgb;
+            }
+        }
+    }
+
+    public static void fillRectXOR(final int[] buf, final int rgb, final int x, final int y, final int width, final int height, final int imageWidth) {
+        for (int ry = y; ry < y + height; ry++) {
+            final int rowOffset = ry * imageWidth;
+            for (int rx = x; rx < x + width; rx++) {
+                final int i = rowOffset + (rx % imageWidth);
+                buf[i] = ((buf[i] & 0xFFFFFF) ^ (rgb & 0xFFFFFF)) | 0xFF000000;
+            }
+        }
+    }
+
     public static int[] resizeArray(final int[] array, final int size) {
         final int[] ret = new int[size];
         System.arraycopy(array, 0, ret, 0, Math.min(array.length, size));
@@ -0,0 +1,138 @@
+package com.jbeeb.localfs;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalFileDataTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sequentialBytesAreBatched() throws Exception {
+        final File file = dir.resolve("OUT").toFile();
+        final LocalFileData data = LocalFileData.open(file, true);
+        for (int i = 0; i < 1000; i++) {
+            data.write((byte) i);
+        }
+        assertThat(data.position()).isEqualTo(1000);
+        assertThat(data.length()).isEqualTo(1000);
+        // Nothing has reached the file yet
+        assertThat(file.length()).isEqualTo(0L);
+
+        data.flush();
+        assertThat(file.length()).isEqualTo(1000L);
+
+        // A full buffer is written without waiting for a flush
+        for (int i = 1000; i < 20000; i++) {
+            data.write((byte) i);
+        }
+        assertThat(file.length()).isEqualTo(1000L + 16384L);
+
+        data.close();
+        assertThat(Files.readAllBytes(file.toPath())).isEqualTo(pattern(20000, 1));
+    }
+
+    @Test
+    void seekOverwritesAndExtends() throws Exception {
+        final File file = dir.resolve("SEEK").toFile();
+        final LocalFileData data = LocalFileData.open(file, true);
+        data.write(pattern(10, 1), 0, 10);
+        data.seek(5);
+        data.write((byte) 0xAA);
+        assertThat(data.position()).isEqualTo(6);
+        assertThat(data.length()).isEqualTo(10);
+
+        // Moving the pointer past the end extends the file
+        data.seek(30000);
+        assertThat(data.length()).isEqualTo(30000);
+        assertThat(data.isEOF()).isTrue();
+        data.write((byte) 0x55);
+        assertThat(data.length()).isEqualTo(30001);
+        data.close();
+
+        final byte[] contents = Files.readAllBytes(file.toPath());
+        assertThat(contents.length).isEqualTo(30001);
+        assertThat(contents[4]).isEqualTo((byte) 4);
+        assertThat(contents[5]).isEqualTo((byte) 0xAA);
+        assertThat(contents[6]).isEqualTo((byte) 6);
+        assertThat(Arrays.copyOfRange(contents, 10, 30000)).isEqualTo(new byte[29990]);
+        assertThat(contents[30000]).isEqualTo((byte) 0x55);
+    }
+
+    @Test
+    void largeWriteGoesToThePointer() throws Exception {
+        final File file = dir.resolve("LARGE").toFile();
+        final byte[] source = pattern(50000, 7);
+        final LocalFileData data = LocalFileData.open(file, true);
+        data.write(new byte[]{1, 2, 3, 4}, 0, 4);
+        // Taken from part way into the array, which is too big to be buffered
+        data.write(source, 3, 40000);
+        assertThat(data.position()).isEqualTo(40004);
+        data.write((byte) 0x99);
+        data.close();
+
+        final byte[] contents = Files.readAllBytes(file.toPath());
+        assertThat(contents.length).isEqualTo(40005);
+        assertThat(Arrays.copyOfRange(contents, 0, 4)).isEqualTo(new byte[]{1, 2, 3, 4});
+        assertThat(Arrays.copyOfRange(contents, 4, 40004)).isEqualTo(Arrays.copyOfRange(source, 3, 40003));
+        assertThat(contents[40004]).isEqualTo((byte) 0x99);
+    }
+
+    @Test
+    void readsBackWhatWasWritten() throws Exception {
+        final File file = dir.resolve("READ").toFile();
+        final byte[] written = pattern(40000, 3);
+        final LocalFileData data = LocalFileData.open(file, true);
+        data.write(written, 0, 1000);
+        data.write(written, 1000, written.length - 1000);
+
+        data.seek(0);
+        assertThat(data.read()).isEqualTo(written[0]);
+        final byte[] block = new byte[100];
+        data.seek(20000);
+        assertThat(data.read(block, 0, block.length)).isEqualTo(100);
+        assertThat(block).isEqualTo(Arrays.copyOfRange(written, 20000, 20100));
+
+        // Overwriting after a read is seen by the next read
+        data.seek(20000);
+        data.write((byte) 0x42);
+        data.seek(20000);
+        assertThat(data.read()).isEqualTo((byte) 0x42);
+        written[20000] = 0x42;
+
+        data.seek(39990);
+        assertThat(data.read(block, 0, block.length)).isEqualTo(10);
+        assertThat(data.isEOF()).isTrue();
+        data.close();
+
+        // Read back again through the read-ahead, a byte at a time and in blocks that straddle its buffers
+        final LocalFileData reader = LocalFileData.openForRead(file);
+        final byte[] read = new byte[written.length];
+        for (int i = 0; i < 20000; i++) {
+            read[i] = reader.read();
+        }
+        assertThat(reader.read(read, 20000, 5000)).isEqualTo(5000);
+        assertThat(reader.read(read, 25000, 20000)).isEqualTo(15000);
+        assertThat(read).isEqualTo(written);
+        assertThatThrownBy(() -> reader.write((byte) 0)).isInstanceOf(IOException.class);
+        reader.close();
+    }
+
+    private static byte[] pattern(final int length, final int step) {
+        final byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * step);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,124 @@
+package com.jbeeb.sound;
+
+import com.jbeeb.util.SystemStatus;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.SourceDataLine;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SoundLineTest {
+
+    private static final long FRAME_NANOS = 20_000_000L;
+
+    @Test
+    void soundIsHeardAboutTwentyMillisecondsAfterItIsMade() throws Exception {
+        final SimulatedLine simulated = new SimulatedLine();
+        final SystemStatus status = new SystemStatus();
+        final SoundEventQueue events = new SoundEventQueue(4096);
+        final SoundLine soundLine = new SoundLine(status, new Sn76489(SoundLine.SAMPLE_RATE), events, simulated.line);
+        soundLine.start();
+        try {
+            // Emulated time runs at real speed and is published once a frame, as the emulator does
+            final long start = System.nanoTime();
+            long frameEnd = start;
+            for (int frame = 0; frame < 150; frame++) {
+                frameEnd += FRAME_NANOS;
+                sleepUntil(frameEnd);
+                if (frame == 100) {
+                    // Tone on channel 0 at full volume
+                    final long now = System.nanoTime();
+                    simulated.soundMadeAt(now);
+                    final long cycle = toCycle(now - start);
+                    events.offer(cycle, 0x80);
+                    events.offer(cycle, 0x90);
+                }
+                events.publish(toCycle(frameEnd - start));
+            }
+        } finally {
+            soundLine.requestStop();
+            soundLine.join(1000L);
+        }
+
+        final double heardMillis = simulated.getLatencyNanos() / 1_000_000.0;
+        assertThat(heardMillis).isBetween(10.0, 35.0);
+        assertThat(status.getDouble(SystemStatus.KEY_AUDIO_LATENCY_MILLIS, 0.0)).isBetween(10.0, 35.0);
+        assertThat(status.getLong(SystemStatus.KEY_AUDIO_OVERRUNS, -1L)).isEqualTo(0L);
+    }
+
+    private static long toCycle(final long nanos) {
+        return nanos * SoundLine.CYCLE_RATE / 1_000_000_000L;
+    }
+
+    private static void sleepUntil(final long nanos) throws InterruptedException {
+        long remaining;
+        while ((remaining = nanos - System.nanoTime()) > 0L) {
+            Thread.sleep(remaining / 1_000_000L, (int) (remaining % 1_000_000L));
+        }
+    }
+
+    //
+    // Plays written samples at the real sample rate and notes when the first sound is heard
+    //
+    private static final class SimulatedLine implements InvocationHandler {
+
+        private static final long BYTES_PER_SECOND = SoundLine.SAMPLE_RATE * 2L;
+
+        final SourceDataLine line = (SourceDataLine) Proxy.newProxyInstance(
+                SourceDataLine.class.getClassLoader(), new Class<?>[]{SourceDataLine.class}, this);
+
+        private final long start = System.nanoTime();
+        private int bufferSize;
+        private long written;
+        private long madeNanos = -1L;
+        private long heardNanos = -1L;
+
+        synchronized void soundMadeAt(final long nanos) {
+            madeNanos = nanos;
+        }
+
+        synchronized long getLatencyNanos() {
+            return (heardNanos < 0L) ? Long.MAX_VALUE : heardNanos - madeNanos;
+        }
+
+        // Bytes played so far - playing stops when the buffer runs dry
+        private long played(final long now) {
+            return Math.min(written, (now - start) * BYTES_PER_SECOND / 1_000_000_000L);
+        }
+
+        @Override
+        public synchronized Object invoke(final Object proxy, final Method method, final Object[] args) {
+            final long now = System.nanoTime();
+            switch (method.getName()) {
+                case "open":
+                    if (args != null && args.length == 2) {
+                        bufferSize = (Integer) args[1];
+                    }
+                    return null;
+                case "getBufferSize":
+                    return bufferSize;
+                case "available":
+                    return (int) (bufferSize - (written - played(now)));
+                case "write":
+                    write(now, (byte[]) args[0], (Integer) args[1], (Integer) args[2]);
+                    return args[2];
+                default:
+                    return null;
+            }
+        }
+
+        private void write(final long now, final byte[] data, final int offset, final int length) {
+            final long queued = written - played(now);
+            for (int i = 0; i < length && heardNanos < 0L && madeNanos >= 0L; i += 2) {
+                final int sample = (short) ((data[offset + i] & 0xFF) | (data[offset + i + 1] << 8));
+                if (sample != 0) {
+                    heardNanos = now + (queued + i) * 1_000_000_000L / BYTES_PER_SECOND;
+                }
+            }
+            written = Math.max(written, played(now)) + length;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.jbeeb.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTrip() throws Exception {
+        final Machine saved = Machine.populated();
+        final File file = dir.resolve("state.bin").toFile();
+        Snapshot.capture(saved).write(file);
+        assertThat(Snapshot.isSnapshot(file)).isTrue();
+
+        final Machine restored = new Machine();
+        final int[] ram = restored.ram;
+        Snapshot.read(file).apply(restored);
+        assertMatches(restored, saved);
+        // Final arrays are restored in place
+        assertThat(restored.ram).isSameAs(ram);
+    }
+
+    @Test
+    void oldStateFormatStillRestores() throws Exception {
+        final Machine saved = Machine.populated();
+        final State state = new State();
+        Util.populateState(state, saved);
+        final File file = dir.resolve("state.old").toFile();
+        state.write(file);
+        assertThat(Snapshot.isSnapshot(file)).isFalse();
+
+        final Machine restored = new Machine();
+        Snapshot.restore(file, restored);
+        assertMatches(restored, saved);
+    }
+
+    @Test
+    void renamedAndDroppedFieldsAreSkipped() throws Exception {
+        final DeviceV1 saved = new DeviceV1();
+        saved.a = 1234;
+        saved.old = 5678;
+        saved.gone = new int[]{1, 2, 3};
+        saved.b = "kept";
+        final Snapshot snapshot = Snapshot.capture(saved, Machine.populated());
+
+        // The machine's section has nothing to go to and is skipped too
+        final DeviceV2 restored = new DeviceV2();
+        snapshot.apply(restored);
+        assertThat(restored.a).isEqualTo(1234);
+        assertThat(restored.b).isEqualTo("kept");
+        assertThat(restored.renamed).isEqualTo(99);
+        assertThat(restored.added).isEqualTo(-1L);
+    }
+
+    private static void assertMatches(final Machine restored, final Machine saved) {
+        assertThat(restored.a).isEqualTo(saved.a);
+        assertThat(restored.cycles).isEqualTo(saved.cycles);
+        assertThat(restored.flag).isEqualTo(saved.flag);
+        assertThat(restored.speed).isEqualTo(saved.speed);
+        assertThat(restored.name).isEqualTo(saved.name);
+        assertThat(restored.ram).isEqualTo(saved.ram);
+        assertThat(restored.registers).isEqualTo(saved.registers);
+    }
+
+    @StateKey(key = "machine")
+    static final class Machine {
+        @StateKey(key = "a")
+        int a;
+
+        @StateKey(key = "cycles")
+        long cycles;
+
+        @StateKey(key = "flag")
+        boolean flag;
+
+        @StateKey(key = "speed")
+        double speed;
+
+        @StateKey(key = "name")
+        String name = "";
+
+        @StateKey(key = "ram")
+        final int[] ram = new int[1024];
+
+        // Values wider than a byte
+        @StateKey(key = "registers")
+        int[] registers = new int[4];
+
+        static Machine populated() {
+            final Machine m = new Machine();
+            m.a = 0x1234;
+            m.cycles = 0x123456789AL;
+            m.flag = true;
+            m.speed = 2.5;
+            m.name = "Model B";
+            for (int i = 0; i < m.ram.length; i++) {
+                m.ram[i] = (i * 7) & 0xFF;
+            }
+            m.registers = new int[]{0x1FFFF, -1, 0, 0x80};
+            return m;
+        }
+    }
+
+    @StateKey(key = "device")
+    static final class DeviceV1 {
+        @StateKey(key = "a")
+        int a;
+
+        @StateKey(key = "old")
+        int old;
+
+        @StateKey(key = "gone")
+        int[] gone;
+
+        @StateKey(key = "b")
+        String b;
+    }
+
+    // The same device after "old" was renamed, "gone" was dropped and "added" was added
+    @StateKey(key = "device")
+    static final class DeviceV2 {
+        @StateKey(key = "a")
+        int a;
+
+        @StateKey(key = "renamed")
+        int renamed = 99;
+
+        @StateKey(key = "b")
+        String b;
+
+        @StateKey(key = "added")
+        long added = -1L;
+    }
+}